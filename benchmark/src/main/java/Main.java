@@ -0,0 +1,24 @@
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class Main {
+
+    /**
+     * Runs the benchmarks with the GC profiler attached, so each result includes
+     * gc.alloc.rate.norm (bytes allocated per operation) next to its throughput.
+     * Results are also written to jmh-result.json for comparing runs over time.
+     * Accepts the usual JMH command line options, e.g. a benchmark name regex.
+     */
+    public static void main(String[] args) throws Exception {
+        var options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessPosition;
+import chess.GameStatus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ChessGame rule checks that run on every move, and the cached game status
+ * that the server reads after each one
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameRulesBenchmark {
+
+    @Param({"initial", "middlegame", "endgame", "check", "checkmate", "stalemate"})
+    public String position;
+
+    private ChessGame game;
+    private ChessGame.TeamColor turn;
+    private List<ChessPosition> ownPieces;
+
+    @Setup
+    public void setup() {
+        game = Positions.load(position);
+        turn = game.getTeamTurn();
+
+        // Find the pieces of the team to move, as the client's highlight feature would
+        ownPieces = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                var pos = ChessPosition.of(row, col);
+                var piece = game.getBoard().getPiece(pos);
+                if (piece != null && piece.getTeamColor() == turn) {
+                    ownPieces.add(pos);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (var pos : ownPieces) {
+            blackhole.consume(game.validMoves(pos));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(turn);
+    }
+
+    // getGameStatus caches its result per position, and the position here never changes, so
+    // checkmate and stalemate are worked out the way a cache miss does to keep move
+    // generation in the measurement. hasValidMoves is true when the team has no valid moves.
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheck(turn) && game.hasValidMoves(turn);
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        return !game.isInCheck(turn) && game.hasValidMoves(turn);
+    }
+
+    @Benchmark
+    public GameStatus gameStatusCached() {
+        return game.getGameStatus();
+    }
+}
@@ -0,0 +1,53 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ChessPiece.pieceMoves for each piece type in a middlegame position
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceMovesBenchmark {
+
+    @Param({"KING", "QUEEN", "BISHOP", "KNIGHT", "ROOK", "PAWN"})
+    public ChessPiece.PieceType pieceType;
+
+    private ChessBoard board;
+    private ChessPiece piece;
+    private ChessPosition start;
+
+    @Setup
+    public void setup() {
+        board = Positions.load("middlegame").getBoard();
+
+        // Use the first white piece of the requested type
+        for (int row = 1; row <= 8 && start == null; row++) {
+            for (int col = 1; col <= 8 && start == null; col++) {
+                var pos = ChessPosition.of(row, col);
+                var candidate = board.getPiece(pos);
+                if (candidate != null && candidate.getTeamColor() == ChessGame.TeamColor.WHITE
+                        && candidate.getPieceType() == pieceType) {
+                    piece = candidate;
+                    start = pos;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Collection<ChessMove> pieceMoves() {
+        return piece.pieceMoves(board, start);
+    }
+}
@@ -0,0 +1,35 @@
+package benchmark;
+
+import chess.ChessGame;
+
+import java.util.Map;
+
+/**
+ * Representative positions the benchmarks are run against, by name
+ */
+public final class Positions {
+
+    private static final Map<String, String> POSITIONS = Map.of(
+            "initial", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "check", "rnbqkbnr/ppp2ppp/3p4/1B2p3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 1 3",
+            "checkmate", "rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3",
+            "stalemate", "7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"
+    );
+
+    private Positions() {
+    }
+
+    /**
+     * @param name one of initial, middlegame, endgame, check, checkmate or stalemate
+     * @return a new game set up at the named position
+     */
+    public static ChessGame load(String name) {
+        var fen = POSITIONS.get(name);
+        if (fen == null) {
+            throw new IllegalArgumentException("unknown position: " + name);
+        }
+        return ChessGame.fromFen(fen);
+    }
+}
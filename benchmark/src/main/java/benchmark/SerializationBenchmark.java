@@ -0,0 +1,55 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import serialization.Serializer;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.ServerMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON work of one move request: reading the MAKE_MOVE command and writing the
+ * LOAD_GAME reply. Compares building a new Gson per call, as the handlers used to, against
+ * the shared instance; run through Main, gc.alloc.rate.norm gives the bytes each allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"initial", "middlegame", "endgame"})
+    public String position;
+
+    private String commandJson;
+    private LoadGameMessage reply;
+
+    @Setup
+    public void setup() {
+        ChessGame game = Positions.load(position);
+        var move = new ChessMove(ChessPosition.of(2, 2), ChessPosition.of(3, 2), null);
+        commandJson = Serializer.gson().toJson(
+                new MakeMoveCommand(UserGameCommand.CommandType.MAKE_MOVE, "token", 1, move));
+        reply = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, game);
+    }
+
+    @Benchmark
+    public String newGsonPerCall() {
+        var command = new Gson().fromJson(commandJson, MakeMoveCommand.class);
+        return command.getMove() == null ? null : new Gson().toJson(reply);
+    }
+
+    @Benchmark
+    public String sharedGson() {
+        var command = Serializer.gson().fromJson(commandJson, MakeMoveCommand.class);
+        return command.getMove() == null ? null : Serializer.gson().toJson(reply);
+    }
+}
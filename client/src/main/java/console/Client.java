@@ -1,7 +1,7 @@
 package console;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import serialization.Serializer;
 import serverfacade.HTTPException;
 import serverfacade.ServerFacade;
 import ui.ChessBoardViewer;
@@ -36,11 +36,11 @@ public class Client implements ServerMessageObserver {
 
     @Override
     public void notify(String message) {
-        ServerMessage msg = new Gson().fromJson(message, ServerMessage.class);
+        ServerMessage msg = Serializer.gson().fromJson(message, ServerMessage.class);
         switch (msg.getServerMessageType()) {
-            case NOTIFICATION -> displayNotification(new Gson().fromJson(message, NotificationMessage.class).getMessage());
-            case ERROR -> displayError(new Gson().fromJson(message, ErrorMessage.class).getMessage());
-            case LOAD_GAME -> loadGame(new Gson().fromJson(message, LoadGameMessage.class));
+            case NOTIFICATION -> displayNotification(Serializer.gson().fromJson(message, NotificationMessage.class).getMessage());
+            case ERROR -> displayError(Serializer.gson().fromJson(message, ErrorMessage.class).getMessage());
+            case LOAD_GAME -> loadGame(Serializer.gson().fromJson(message, LoadGameMessage.class));
         }
     }
 
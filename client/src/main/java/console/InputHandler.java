@@ -403,7 +403,7 @@ public class InputHandler {
         int col = (int) inputs[1].charAt(0) - 96;
 
         ChessBoard currBoard = currGame.getBoard();
-        ChessPosition pos = new ChessPosition(row, col);
+        ChessPosition pos = ChessPosition.of(row, col);
         ChessPiece piece = currBoard.getPiece(pos);
 
         // Don't highlight a null piece
@@ -443,8 +443,8 @@ public class InputHandler {
             throw new InvalidInputException("invalid end position supplied");
         }
 
-        ChessPosition startPos = new ChessPosition((int) start.charAt(1) - 48, (int) start.charAt(0) - 96);
-        ChessPosition endPos = new ChessPosition((int) end.charAt(1) - 48, (int) end.charAt(0) - 96);
+        ChessPosition startPos = ChessPosition.of((int) start.charAt(1) - 48, (int) start.charAt(0) - 96);
+        ChessPosition endPos = ChessPosition.of((int) end.charAt(1) - 48, (int) end.charAt(0) - 96);
         ChessMove move = new ChessMove(startPos, endPos, promotionPiece);
 
         webSocketFacade.executeMakeMove(move, authToken, gameID);
@@ -1,9 +1,9 @@
 package serverfacade;
 
-import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import model.AuthData;
 import model.GameData;
+import serialization.Serializer;
 
 import java.lang.reflect.Type;
 import java.net.http.HttpClient;
@@ -27,7 +27,7 @@ public class ServerFacade {
                 "password", password,
                 "email", email);
 
-        var jsonBody = new Gson().toJson(body);
+        var jsonBody = Serializer.gson().toJson(body);
         HttpResponse<String> response;
 
         try {
@@ -36,7 +36,7 @@ public class ServerFacade {
             throw new HTTPException("user registration failed due to server error");
         }
 
-        var responseMap = new Gson().fromJson(response.body(), Map.class);
+        var responseMap = Serializer.gson().fromJson(response.body(), Map.class);
         var statusCode = response.statusCode();
 
         if (statusCode == 200) {
@@ -54,7 +54,7 @@ public class ServerFacade {
         var body = Map.of("username", username,
                 "password", password);
 
-        var jsonBody = new Gson().toJson(body);
+        var jsonBody = Serializer.gson().toJson(body);
         HttpResponse<String> response;
 
         try {
@@ -63,7 +63,7 @@ public class ServerFacade {
             throw new HTTPException("user registration failed due to server error");
         }
 
-        var responseMap = new Gson().fromJson(response.body(), Map.class);
+        var responseMap = Serializer.gson().fromJson(response.body(), Map.class);
         var statusCode = response.statusCode();
 
         if (statusCode == 200) {
@@ -86,7 +86,7 @@ public class ServerFacade {
             throw new HTTPException("user logout failed due to server error");
         }
 
-        var responseMap = new Gson().fromJson(response.body(), Map.class);
+        var responseMap = Serializer.gson().fromJson(response.body(), Map.class);
         var statusCode = response.statusCode();
 
         if (statusCode != 200) {
@@ -99,7 +99,7 @@ public class ServerFacade {
 
         var body = Map.of("gameName", gameName);
 
-        var jsonBody = new Gson().toJson(body);
+        var jsonBody = Serializer.gson().toJson(body);
         HttpResponse<String> response;
 
         try {
@@ -108,7 +108,7 @@ public class ServerFacade {
             throw new HTTPException("game creation failed due to server error");
         }
 
-        var responseMap = new Gson().fromJson(response.body(), Map.class);
+        var responseMap = Serializer.gson().fromJson(response.body(), Map.class);
         var statusCode = response.statusCode();
 
         if (statusCode == 200) {
@@ -134,12 +134,12 @@ public class ServerFacade {
 
         if (statusCode == 200) {
             Type mapType = new TypeToken<Map<String, ArrayList<GameData>>>(){}.getType();
-            Map<String, ArrayList<GameData>> responseMap = new Gson().fromJson(response.body(), mapType);
+            Map<String, ArrayList<GameData>> responseMap = Serializer.gson().fromJson(response.body(), mapType);
 
             return responseMap.get("games");
 
         } else {
-            var errorMsg = new Gson().fromJson(response.body(), Map.class).get("message");
+            var errorMsg = Serializer.gson().fromJson(response.body(), Map.class).get("message");
             throw new HTTPException((String)errorMsg);
         }
     }
@@ -147,7 +147,7 @@ public class ServerFacade {
     public void joinGame(String authToken, String playerColor, Integer gameID) {
         var body = Map.of("playerColor", playerColor.toUpperCase(), "gameID", gameID);
 
-        var jsonBody = new Gson().toJson(body);
+        var jsonBody = Serializer.gson().toJson(body);
         HttpResponse<String> response;
 
         try {
@@ -156,7 +156,7 @@ public class ServerFacade {
             throw new HTTPException("joining game failed due to server error");
         }
 
-        var responseMap = new Gson().fromJson(response.body(), Map.class);
+        var responseMap = Serializer.gson().fromJson(response.body(), Map.class);
         var statusCode = response.statusCode();
 
         if (statusCode != 200) {
@@ -175,7 +175,7 @@ public class ServerFacade {
             throw new HTTPException("clearing database failed due to server error");
         }
 
-        var responseMap = new Gson().fromJson(response.body(), Map.class);
+        var responseMap = Serializer.gson().fromJson(response.body(), Map.class);
         var statusCode = response.statusCode();
 
         if (statusCode != 200) {
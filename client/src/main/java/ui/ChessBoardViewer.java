@@ -60,7 +60,7 @@ public class ChessBoardViewer {
             for (i = 8; i >= 1; i--) {
                 System.out.print(SET_BG_COLOR_LIGHT_GREY + " " + i + " " + RESET_BG_COLOR);
                 for (j = 1; j <= 8; j++) {
-                    ChessPosition pos = new ChessPosition(i, j);
+                    ChessPosition pos = ChessPosition.of(i, j);
                     if (highlightPositions.contains(pos)) {
                         printPieceHighlighted(chessBoard, i, j);
                     } else {
@@ -78,7 +78,7 @@ public class ChessBoardViewer {
             for (i = 1; i <= 8; i++) {
                 System.out.print(SET_BG_COLOR_LIGHT_GREY + " " + i + " " + RESET_BG_COLOR);
                 for (j = 8; j >= 1; j--) {
-                    ChessPosition pos = new ChessPosition(i, j);
+                    ChessPosition pos = ChessPosition.of(i, j);
                     if (!highlightPositions.contains(pos)) {
                         printPiece(chessBoard, i, j);
                     } else {
@@ -98,7 +98,7 @@ public class ChessBoardViewer {
         } else {
             System.out.print(SET_BG_COLOR_GREEN);
         }
-        ChessPiece chessPiece = chessBoard.getPiece(new ChessPosition(i, j));
+        ChessPiece chessPiece = chessBoard.getPiece(ChessPosition.of(i, j));
         System.out.print(pieceToUnicode(chessPiece));
         System.out.print(RESET_BG_COLOR);
     }
@@ -109,7 +109,7 @@ public class ChessBoardViewer {
         } else {
             System.out.print(SET_BG_COLOR_WHITE);
         }
-        ChessPiece chessPiece = chessBoard.getPiece(new ChessPosition(i, j));
+        ChessPiece chessPiece = chessBoard.getPiece(ChessPosition.of(i, j));
         System.out.print(pieceToUnicode(chessPiece));
         System.out.print(RESET_BG_COLOR);
     }
@@ -1,7 +1,7 @@
 package websocket;
 
 import chess.ChessMove;
-import com.google.gson.Gson;
+import serialization.Serializer;
 import serverfacade.HTTPException;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
@@ -49,7 +49,7 @@ public class WebSocketFacade extends Endpoint {
     public void executeUserCommand(UserGameCommand.CommandType commandType, String authToken, Integer gameID) throws HTTPException {
         try {
             var command = new UserGameCommand(commandType, authToken, gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            this.session.getBasicRemote().sendText(Serializer.gson().toJson(command));
         } catch (IOException ex) {
             throw new HTTPException(ex.getMessage());
         }
@@ -58,7 +58,7 @@ public class WebSocketFacade extends Endpoint {
     public void executeMakeMove(ChessMove move, String authToken, Integer gameID) throws HTTPException {
         try {
             var command = new MakeMoveCommand(UserGameCommand.CommandType.MAKE_MOVE, authToken, gameID, move);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            this.session.getBasicRemote().sendText(Serializer.gson().toJson(command));
         } catch (IOException ex) {
             throw new HTTPException(ex.getMessage());
         }
@@ -1,3 +1,4 @@
+import chess.Attacks;
 import server.Server;
 
 public class Main {
@@ -6,5 +7,6 @@ public class Main {
         server.run(8080);
 
         System.out.println("♕ 240 Chess Server");
+        System.out.println(Attacks.summary());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,216 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameData;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps games in memory in front of another GameDataAccess, and writes updates back to it
+ * in the background.
+ * <p>
+ * Games are read from the backing store once and then served from memory. Updates change
+ * the in-memory copy right away and are written back every flushIntervalMillis; several
+ * updates to a game between two flushes are written as one, and all the games due are
+ * written in one batch. Games that have not been touched for idleMillis and have nothing
+ * left to write are dropped from memory. Creating a game, listing games and clearing go
+ * straight to the backing store, after writing any pending updates where that matters.
+ * <p>
+ * While a game is in memory, its version is kept here and updateGameIfVersion is decided
+ * against it, since the backing store only sees the flushed updates. A game loaded again
+ * after being dropped takes the backing store's version, which may repeat one handed out
+ * before; that needs a caller to hold a version for longer than idleMillis.
+ * <p>
+ * Call {@link #close()} on shutdown to write the last updates.
+ */
+public class CachingGameDataAccess implements GameDataAccess, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(CachingGameDataAccess.class.getName());
+
+    private record Entry(GameData gameData, long version, long lastUsedNanos) {
+    }
+
+    private final GameDataAccess backing;
+    private final long idleNanos;
+
+    // Games held in memory, by ID
+    private final ConcurrentHashMap<Integer, Entry> cache = new ConcurrentHashMap<>();
+    // Copies of the latest update to each game not yet written to the backing store
+    private final ConcurrentHashMap<Integer, GameData> pending = new ConcurrentHashMap<>();
+    // Held while writing to the backing store, so a flush and a clear do not interleave
+    private final Object flushLock = new Object();
+
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * @param backing            where games are read from and written to
+     * @param flushIntervalMillis longest time an update waits before it is written
+     * @param idleMillis         how long an unused game stays in memory
+     */
+    public CachingGameDataAccess(GameDataAccess backing, long flushIntervalMillis, long idleMillis) {
+        this.backing = backing;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "game-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushInBackground, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void createGame(GameData gameData) throws DataAccessException, SQLException {
+        // Write through, so a duplicate ID is still reported to the caller
+        backing.createGame(gameData);
+        cache.put(gameData.gameID(), new Entry(gameData, 0, System.nanoTime()));
+    }
+
+    @Override
+    public GameData getGame(Integer gameID) throws DataAccessException, SQLException {
+        var entry = load(gameID);
+        return entry == null ? null : entry.gameData();
+    }
+
+    @Override
+    public VersionedGameData getVersionedGame(Integer gameID) throws DataAccessException, SQLException {
+        var entry = load(gameID);
+        return entry == null ? null : new VersionedGameData(entry.gameData(), entry.version());
+    }
+
+    @Override
+    public void updateGame(GameData gameData) throws DataAccessException, SQLException {
+        updateIfVersion(gameData, null);
+    }
+
+    @Override
+    public boolean updateGameIfVersion(GameData gameData, long expectedVersion) throws DataAccessException, SQLException {
+        return updateIfVersion(gameData, expectedVersion);
+    }
+
+    @Override
+    public HashSet<GameData> listGames() throws DataAccessException, SQLException {
+        // Player names may have changed in memory only
+        flush();
+        return backing.listGames();
+    }
+
+    @Override
+    public void clear() throws DataAccessException, SQLException {
+        synchronized (flushLock) {
+            pending.clear();
+            cache.clear();
+            backing.clear();
+        }
+    }
+
+    /**
+     * Writes every pending update to the backing store now. Updates that fail to write are
+     * kept, to be tried again on the next flush.
+     */
+    public void flush() throws DataAccessException, SQLException {
+        synchronized (flushLock) {
+            var batch = new ArrayList<>(pending.values());
+            if (batch.isEmpty()) {
+                return;
+            }
+            backing.updateGames(batch);
+
+            // Keep any update that arrived while the batch was being written
+            for (var written : batch) {
+                pending.computeIfPresent(written.gameID(), (id, latest) -> latest == written ? null : latest);
+            }
+        }
+    }
+
+    /**
+     * Stops the background writer and writes the last pending updates
+     */
+    @Override
+    public void close() throws DataAccessException, SQLException {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.warning("background game flush did not finish before shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * @return the game's cache entry, loading it from the backing store if it is not in
+     * memory, or null if there is no such game
+     */
+    private Entry load(Integer gameID) throws DataAccessException, SQLException {
+        var entry = cache.get(gameID);
+        if (entry != null) {
+            cache.replace(gameID, entry, new Entry(entry.gameData(), entry.version(), System.nanoTime()));
+            return entry;
+        }
+
+        var versioned = backing.getVersionedGame(gameID);
+        if (versioned == null) {
+            return null;
+        }
+        // Another caller may have loaded or updated the game in the meantime; theirs wins
+        return cache.computeIfAbsent(gameID,
+                id -> new Entry(versioned.gameData(), versioned.version(), System.nanoTime()));
+    }
+
+    /**
+     * Updates a game in memory and queues the update to be written, if the game is at the
+     * expected version or no version is expected
+     *
+     * @return false if the game was at another version
+     * @throws DataAccessException if there is no such game
+     */
+    private boolean updateIfVersion(GameData gameData, Long expectedVersion) throws DataAccessException, SQLException {
+        Integer gameID = gameData.gameID();
+        // Callers keep changing the game they were handed, so write out a copy of it as it is now
+        var copy = new GameData(gameID, gameData.whiteUsername(), gameData.blackUsername(),
+                gameData.gameName(), gameData.game() == null ? null : ChessGame.fromBytes(gameData.game().toBytes()));
+
+        boolean[] applied = {false};
+        Entry updated;
+        do {
+            if (load(gameID) == null) {
+                throw new DataAccessException("cannot update GameData which doesn't exist");
+            }
+            // A null result means the game was dropped from memory since loading it, so load it again
+            updated = cache.computeIfPresent(gameID, (id, entry) -> {
+                if (expectedVersion != null && entry.version() != expectedVersion) {
+                    return entry;
+                }
+                applied[0] = true;
+                pending.put(id, copy);
+                return new Entry(gameData, entry.version() + 1, System.nanoTime());
+            });
+        } while (updated == null);
+        return applied[0];
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (DataAccessException | SQLException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "failed to write games, will retry", e);
+        }
+
+        // Drop games nobody has used for a while, unless they still have an update to write
+        long now = System.nanoTime();
+        for (var gameID : cache.keySet()) {
+            cache.computeIfPresent(gameID, (id, entry) ->
+                    now - entry.lastUsedNanos() > idleNanos && !pending.containsKey(id) ? null : entry);
+        }
+    }
+}
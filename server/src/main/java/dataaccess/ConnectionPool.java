@@ -0,0 +1,262 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of database connections.
+ * <p>
+ * At most maxSize connections are handed out at once; callers beyond that wait up to
+ * maxWaitMillis for one to be returned. Connections handed out are wrapped so that close()
+ * returns them to the pool instead of closing them, so DAOs keep using try-with-resources
+ * as before. Returned connections are reused most-recently-returned first, which lets the
+ * rest sit idle until they pass idleTimeoutMillis and are closed. A connection that has
+ * been idle longer than validateIdleMillis is checked with isValid before it is reused.
+ */
+class ConnectionPool {
+
+    /**
+     * Opens a new physical connection to the database
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Counters describing the pool's use since it was created
+     *
+     * @param open          physical connections currently open, handed out or idle
+     * @param idle          connections waiting in the pool to be reused
+     * @param borrowed      number of times a connection was handed out
+     * @param created       number of physical connections opened
+     * @param timeouts      number of callers that gave up waiting for a connection
+     * @param totalWaitNanos time callers spent waiting for a connection, in total
+     * @param maxWaitNanos  longest time a single caller waited for a connection
+     */
+    record Stats(int open, int idle, long borrowed, long created, long timeouts,
+                 long totalWaitNanos, long maxWaitNanos) {
+    }
+
+    private record IdleConnection(Connection connection, long idleSinceNanos) {
+    }
+
+    private final ConnectionFactory factory;
+    private final long maxWaitMillis;
+    private final long idleTimeoutNanos;
+    private final long validateIdleNanos;
+    private final int validationTimeoutSeconds;
+
+    // One permit per connection that may be handed out
+    private final Semaphore permits;
+    // Returned connections, most recently returned first
+    private final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    // Set by closeIdle until the next borrow, while connections coming back are closed instead of kept
+    private volatile boolean draining;
+
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    ConnectionPool(ConnectionFactory factory, int maxSize, long maxWaitMillis, long idleTimeoutMillis,
+                   long validateIdleMillis, int validationTimeoutSeconds) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("connection pool needs room for at least one connection");
+        }
+        this.factory = factory;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.validateIdleNanos = TimeUnit.MILLISECONDS.toNanos(validateIdleMillis);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Hands out a connection, reusing an idle one if there is a usable one
+     *
+     * @return a connection whose close() returns it to the pool
+     * @throws SQLException if no connection was returned within maxWaitMillis, or a new
+     *                      one could not be opened
+     */
+    Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("timed out after " + maxWaitMillis + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for a database connection", e);
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        draining = false;
+
+        try {
+            var connection = takeIdle();
+            if (connection == null) {
+                connection = factory.open();
+                open.incrementAndGet();
+                created.incrementAndGet();
+            }
+            borrowed.incrementAndGet();
+            return wrap(connection);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes every idle connection, and each connection still handed out once it is
+     * returned. The pool stays usable: the next borrow opens a new connection, and from
+     * then on returned connections are kept for reuse again.
+     */
+    void closeIdle() {
+        draining = true;
+        IdleConnection entry;
+        while ((entry = idle.pollLast()) != null) {
+            discard(entry.connection());
+        }
+    }
+
+    Stats stats() {
+        return new Stats(open.get(), idle.size(), borrowed.get(), created.get(), timeouts.get(),
+                totalWaitNanos.get(), maxWaitNanos.get());
+    }
+
+    /**
+     * @return the most recently returned connection that is still usable, or null if there is none
+     */
+    private Connection takeIdle() {
+        long now = System.nanoTime();
+
+        // The oldest connections are at the end, so expired ones can be trimmed from there
+        IdleConnection oldest;
+        while ((oldest = idle.peekLast()) != null && now - oldest.idleSinceNanos() > idleTimeoutNanos) {
+            if (idle.removeLastOccurrence(oldest)) {
+                discard(oldest.connection());
+            }
+        }
+
+        IdleConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (now - entry.idleSinceNanos() <= validateIdleNanos || isValid(entry.connection())) {
+                return entry.connection();
+            }
+            discard(entry.connection());
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Takes back a connection the caller closed. Connections left in a transaction are
+     * rolled back first, and ones that cannot be reset, or come back after closeIdle, are
+     * closed instead.
+     */
+    private void giveBack(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                open.decrementAndGet();
+                return;
+            }
+            if (draining) {
+                discard(connection);
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            idle.addFirst(new IdleConnection(connection, System.nanoTime()));
+        } catch (SQLException e) {
+            discard(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(Connection connection) {
+        open.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // The connection is being thrown away either way
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new PooledConnection(connection));
+    }
+
+    /**
+     * Passes calls through to a pooled connection until it is closed, at which point the
+     * connection goes back to the pool and this handle stops working
+     */
+    private class PooledConnection implements InvocationHandler {
+
+        private Connection connection;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (connection != null) {
+                        giveBack(connection);
+                        connection = null;
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return connection == null || connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "pooled " + connection;
+                }
+                default -> {
+                    if (connection == null) {
+                        throw new SQLException("connection has been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -8,6 +8,7 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -30,10 +31,10 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Gets a connection to the database from the connection pool, with the catalog set
+     * based upon the properties specified in db.properties. Connections to the database
+     * should be short-lived, and you must close the connection when you are done with it,
+     * which returns it to the pool. The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -44,14 +45,34 @@ public class DatabaseManager {
     static Connection getConnection() throws DataAccessException {
         try {
             //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
+            return pool.borrow();
         } catch (SQLException ex) {
             throw new DataAccessException("failed to get connection", ex);
         }
     }
 
+    /**
+     * @return how the connection pool has been used, including how long callers waited for connections
+     */
+    static ConnectionPool.Stats poolStats() {
+        return pool.stats();
+    }
+
+    /**
+     * Closes the connections waiting in the pool, such as when the server stops.
+     * Connections still in use are closed once they are returned, unless the pool has
+     * handed out a connection again by then.
+     */
+    static public void closeIdleConnections() {
+        pool.closeIdle();
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
+        conn.setCatalog(databaseName);
+        return conn;
+    }
+
     /**
      * Executes a provided list of statements to configure the database
      */
@@ -79,6 +100,12 @@ public class DatabaseManager {
         }
     }
 
+    /*
+     * Besides the connection settings, db.properties may size the connection pool:
+     * db.pool.maxSize (default 10), db.pool.maxWaitMillis (30000),
+     * db.pool.idleTimeoutMillis (600000), db.pool.validateIdleMillis (5000)
+     * and db.pool.validationTimeoutSeconds (2).
+     */
     private static void loadProperties(Properties props) {
         databaseName = props.getProperty("db.name");
         dbUsername = props.getProperty("db.user");
@@ -87,5 +114,13 @@ public class DatabaseManager {
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
         connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+
+        // The pool settings are optional
+        pool = new ConnectionPool(DatabaseManager::openConnection,
+                Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                Long.parseLong(props.getProperty("db.pool.maxWaitMillis", "30000")),
+                Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "600000")),
+                Long.parseLong(props.getProperty("db.pool.validateIdleMillis", "5000")),
+                Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", "2")));
     }
 }
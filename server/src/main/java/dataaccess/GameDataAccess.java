@@ -3,12 +3,38 @@ package dataaccess;
 import model.GameData;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.HashSet;
 
 public interface GameDataAccess {
     void createGame(GameData gameData) throws DataAccessException, SQLException;
     GameData getGame(Integer gameID) throws DataAccessException, SQLException;
     void updateGame(GameData gameData) throws DataAccessException, SQLException;
+
+    /**
+     * @return the game with its current version, or null if there is no such game
+     */
+    VersionedGameData getVersionedGame(Integer gameID) throws DataAccessException, SQLException;
+
+    /**
+     * Updates a game only if it is still at the given version, for read-modify-write
+     * without locking. Callers that lose the race read the game again and retry.
+     *
+     * @param expectedVersion the version the update was based on
+     * @return true if the game was updated, false if it had changed since that version
+     * @throws DataAccessException if there is no such game
+     */
+    boolean updateGameIfVersion(GameData gameData, long expectedVersion) throws DataAccessException, SQLException;
+
+    /**
+     * Updates several games at once, which stores may do in a single round trip
+     */
+    default void updateGames(Collection<GameData> games) throws DataAccessException, SQLException {
+        for (var gameData : games) {
+            updateGame(gameData);
+        }
+    }
+
     HashSet<GameData> listGames() throws DataAccessException, SQLException;
     void clear() throws DataAccessException, SQLException;
 }
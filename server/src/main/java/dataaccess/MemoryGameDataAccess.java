@@ -2,37 +2,56 @@ package dataaccess;
 
 import model.GameData;
 
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryGameDataAccess implements GameDataAccess {
 
-    private final HashMap<Integer, GameData> gameDataSaved = new HashMap<>();
+    private final ConcurrentHashMap<Integer, VersionedGameData> gameDataSaved = new ConcurrentHashMap<>();
 
     @Override
     public void createGame(GameData gameData) {
-        gameDataSaved.put(gameData.gameID(), gameData);
+        gameDataSaved.put(gameData.gameID(), new VersionedGameData(gameData, 0));
     }
 
     @Override
     public GameData getGame(Integer gameID) {
-        return gameDataSaved.get(gameID);
+        var saved = gameDataSaved.get(gameID);
+        return saved == null ? null : saved.gameData();
     }
 
     @Override
     public void updateGame(GameData gameData) throws DataAccessException {
-        Integer target = gameData.gameID();
-        if (!(gameDataSaved.containsKey(target))) {
+        var updated = gameDataSaved.computeIfPresent(gameData.gameID(),
+                (id, saved) -> new VersionedGameData(gameData, saved.version() + 1));
+        if (updated == null) {
+            throw new DataAccessException("cannot update GameData which doesn't exist");
+        }
+    }
+
+    @Override
+    public VersionedGameData getVersionedGame(Integer gameID) {
+        return gameDataSaved.get(gameID);
+    }
+
+    @Override
+    public boolean updateGameIfVersion(GameData gameData, long expectedVersion) throws DataAccessException {
+        var updated = new VersionedGameData(gameData, expectedVersion + 1);
+        // Swap in the update only if the saved game is still at the expected version
+        var saved = gameDataSaved.computeIfPresent(gameData.gameID(),
+                (id, current) -> current.version() == expectedVersion ? updated : current);
+        if (saved == null) {
             throw new DataAccessException("cannot update GameData which doesn't exist");
         }
-        gameDataSaved.put(target, gameData);
+        return saved == updated;
     }
 
     @Override
     public HashSet<GameData> listGames() {
         HashSet<GameData> gamesList = new HashSet<>();
         // Iterate through gameDataSaved and extract everything but the game
-        for (var gameData : gameDataSaved.values()) {
+        for (var saved : gameDataSaved.values()) {
+            var gameData = saved.gameData();
             gamesList.add(new GameData(gameData.gameID(),
                     gameData.whiteUsername(), gameData.blackUsername(),
                     gameData.gameName(), null));
@@ -1,16 +1,40 @@
 package dataaccess;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
-
+import chess.ChessMove;
+import chess.InvalidMoveException;
 import model.GameData;
+import serialization.Serializer;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 
+/**
+ * Stores games in MySQL as an append-only log of moves plus periodic snapshots.
+ * <p>
+ * Each gameData row holds a snapshot of its game (ChessGame.toBytes) taken after
+ * snapshotPly moves, and the number of moves made so far in ply. The moves themselves go
+ * to gameMoves, one packed move per row, so saving a move is a small insert rather than a
+ * rewrite of the whole game. A new snapshot is written every SNAPSHOT_INTERVAL moves, and
+ * reading a game replays the moves made since its latest snapshot.
+ * <p>
+ * The snapshot is ChessGame's own encoding, so it also carries the moves made before it.
+ * That duplicates rows of gameMoves, but keeps the snapshot a complete game that reads
+ * back with its whole log, and only the moves since it are read from gameMoves. The row
+ * also keeps ChessGame.getLogHash of the stored moves in logHash, which tells whether a
+ * game being stored carries on from the stored one without reading that one back.
+ * <p>
+ * Every update also increments the row's version, which lets updateGameIfVersion make a
+ * conditional update instead of holding a lock between reading and writing a game.
+ */
 public class SQLGameDataAccess implements GameDataAccess {
 
+    // Most moves replayed when reading a game
+    private static final int SNAPSHOT_INTERVAL = 16;
+
     public SQLGameDataAccess() throws DataAccessException, SQLException {
         String[] createStatements = {
                 """
@@ -19,39 +43,145 @@ public class SQLGameDataAccess implements GameDataAccess {
               `whiteUsername` varchar(255),
               `blackUsername` varchar(255),
               `gameName` varchar(255),
-              `game` json,
+              `game` blob,
+              `snapshotPly` int NOT NULL DEFAULT 0,
+              `ply` int NOT NULL DEFAULT 0,
+              `version` bigint NOT NULL DEFAULT 0,
+              `logHash` bigint NOT NULL DEFAULT 0,
               PRIMARY KEY (`gameId`),
               INDEX(`whiteUsername`),
               INDEX(`blackUsername`),
               INDEX(`gameName`)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+            """,
+                """
+            CREATE TABLE IF NOT EXISTS gameMoves (
+              `gameId` int NOT NULL,
+              `ply` int NOT NULL,
+              `move` smallint NOT NULL,
+              PRIMARY KEY (`gameId`, `ply`)
+            ) ENGINE=InnoDB
             """
         };
         DatabaseManager.configureDatabase(createStatements);
+        migrateJsonGames();
+        addColumns();
     }
 
-    @Override
-    public void createGame(GameData gameData) throws DataAccessException, SQLException  {
+    /**
+     * Converts a gameData table from when games were stored as JSON to the binary encoding
+     * of ChessGame.toBytes. The conversion goes through a second column that replaces the
+     * JSON one once every row is converted; each step checks information_schema first, so
+     * an interrupted migration carries on the next time the server starts.
+     */
+    private static void migrateJsonGames() throws DataAccessException, SQLException {
         try (Connection conn = DatabaseManager.getConnection()) {
-            var statement = "INSERT INTO gameData (gameId, whiteUsername, blackUsername, gameName, game) VALUES(?, ?, ?, ?, ?)";
-            try (var preparedStatement = conn.prepareStatement(statement)) {
-                // serialize the game into a JSON for storage in the database
-                var gameJson = new Gson().toJson(gameData.game());
+            if (!"json".equals(columnType(conn, "game"))) {
+                return;
+            }
+            if (columnType(conn, "gameBinary") == null) {
+                try (var preparedStatement = conn.prepareStatement("ALTER TABLE gameData ADD COLUMN `gameBinary` blob")) {
+                    preparedStatement.executeUpdate();
+                }
+            }
 
-                preparedStatement.setInt(1, gameData.gameID());
-                preparedStatement.setString(2, gameData.whiteUsername());
-                preparedStatement.setString(3, gameData.blackUsername());
-                preparedStatement.setString(4, gameData.gameName());
-                preparedStatement.setString(5, gameJson);
+            var select = "SELECT gameId, game FROM gameData WHERE gameBinary IS NULL AND game IS NOT NULL";
+            var update = "UPDATE gameData SET gameBinary=? WHERE gameId=?";
+            try (var selectStatement = conn.prepareStatement(select);
+                 var updateStatement = conn.prepareStatement(update);
+                 var rs = selectStatement.executeQuery()) {
+                while (rs.next()) {
+                    // The old adapters still read JSON written before the compact format
+                    var game = Serializer.gson().fromJson(rs.getString("game"), ChessGame.class);
+                    updateStatement.setBytes(1, game == null ? null : game.toBytes());
+                    updateStatement.setInt(2, rs.getInt("gameId"));
+                    updateStatement.addBatch();
+                }
+                updateStatement.executeBatch();
+            }
+
+            var replace = "ALTER TABLE gameData DROP COLUMN `game`, RENAME COLUMN `gameBinary` TO `game`";
+            try (var preparedStatement = conn.prepareStatement(replace)) {
                 preparedStatement.executeUpdate();
             }
         }
     }
 
+    /**
+     * Adds the move counters, version and log hash to a gameData table from before they
+     * existed. Games already stored count as snapshots taken before any moves were logged,
+     * at version 0, whose log hash matches no game, so they are snapshotted again when next
+     * updated.
+     */
+    private static void addColumns() throws DataAccessException, SQLException {
+        String[][] columns = {{"snapshotPly", "int"}, {"ply", "int"}, {"version", "bigint"}, {"logHash", "bigint"}};
+        try (Connection conn = DatabaseManager.getConnection()) {
+            for (var column : columns) {
+                if (columnType(conn, column[0]) != null) {
+                    continue;
+                }
+                var statement = "ALTER TABLE gameData ADD COLUMN `" + column[0] + "` " + column[1] + " NOT NULL DEFAULT 0";
+                try (var preparedStatement = conn.prepareStatement(statement)) {
+                    preparedStatement.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the data type of a column of gameData, or null if it has no such column
+     */
+    private static String columnType(Connection conn, String column) throws SQLException {
+        var statement = "SELECT DATA_TYPE FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='gameData' AND COLUMN_NAME=?";
+        try (var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.setString(1, column);
+            try (var rs = preparedStatement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    @Override
+    public void createGame(GameData gameData) throws DataAccessException, SQLException  {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                var game = gameData.game();
+                int ply = game == null ? 0 : game.getMoveCount();
+                var statement = "INSERT INTO gameData (gameId, whiteUsername, blackUsername, gameName, game, snapshotPly, ply, logHash) "
+                        + "VALUES(?, ?, ?, ?, ?, ?, ?, ?)";
+                try (var preparedStatement = conn.prepareStatement(statement)) {
+                    preparedStatement.setInt(1, gameData.gameID());
+                    preparedStatement.setString(2, gameData.whiteUsername());
+                    preparedStatement.setString(3, gameData.blackUsername());
+                    preparedStatement.setString(4, gameData.gameName());
+                    preparedStatement.setBytes(5, game == null ? null : game.toBytes());
+                    preparedStatement.setInt(6, ply);
+                    preparedStatement.setInt(7, ply);
+                    preparedStatement.setLong(8, game == null ? 0L : game.getLogHash(ply));
+                    preparedStatement.executeUpdate();
+                }
+                insertMoves(conn, gameData.gameID(), game, 0);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
     @Override
     public GameData getGame(Integer gameID) throws DataAccessException, SQLException  {
+        var versioned = getVersionedGame(gameID);
+        return versioned == null ? null : versioned.gameData();
+    }
+
+    @Override
+    public VersionedGameData getVersionedGame(Integer gameID) throws DataAccessException, SQLException  {
         try (Connection conn = DatabaseManager.getConnection()) {
-            var statement = "SELECT gameId, whiteUsername, blackUsername, gameName, game FROM gameData WHERE gameId=?";
+            var statement = "SELECT gameId, whiteUsername, blackUsername, gameName, game, snapshotPly, ply, version "
+                    + "FROM gameData WHERE gameId=?";
             try (var preparedStatement = conn.prepareStatement(statement)) {
                 preparedStatement.setInt(1, gameID);
                 try (var rs = preparedStatement.executeQuery()) {
@@ -59,11 +189,15 @@ public class SQLGameDataAccess implements GameDataAccess {
                         var whiteUsername = rs.getString("whiteUsername");
                         var blackUsername = rs.getString("blackUsername");
                         var gameName = rs.getString("gameName");
-                        var gameJson = rs.getString("game");
+                        var gameBytes = rs.getBytes("game");
 
-                        // Deserialize the game from the stored JSON
-                        var game = new Gson().fromJson(gameJson, ChessGame.class);
-                        return new GameData(gameID, whiteUsername, blackUsername, gameName, game);
+                        // Decode the latest snapshot, then catch up on the moves made since
+                        var game = gameBytes == null ? null : ChessGame.fromBytes(gameBytes);
+                        if (game != null && rs.getInt("ply") > rs.getInt("snapshotPly")) {
+                            replayMoves(conn, gameID, game, rs.getInt("snapshotPly"));
+                        }
+                        var gameData = new GameData(gameID, whiteUsername, blackUsername, gameName, game);
+                        return new VersionedGameData(gameData, rs.getLong("version"));
                     }
                 }
             }
@@ -73,24 +207,155 @@ public class SQLGameDataAccess implements GameDataAccess {
 
     @Override
     public void updateGame(GameData gameData) throws DataAccessException, SQLException {
+        updateGames(List.of(gameData));
+    }
+
+    @Override
+    public void updateGames(Collection<GameData> games) throws DataAccessException, SQLException {
         try (Connection conn = DatabaseManager.getConnection()) {
-            var statement = "UPDATE gameData SET whiteUsername=?, blackUsername=?, gameName=?, game=? WHERE gameId=?";
-            try (var preparedStatement = conn.prepareStatement(statement)) {
-                // serialize the game into a JSON for storage in the database
-                var gameJson = new Gson().toJson(gameData.game());
+            conn.setAutoCommit(false);
+            try {
+                for (var gameData : games) {
+                    writeUpdate(conn, gameData, null);
+                }
+                conn.commit();
+            } catch (DataAccessException | SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
 
-                preparedStatement.setString(1, gameData.whiteUsername());
-                preparedStatement.setString(2, gameData.blackUsername());
-                preparedStatement.setString(3, gameData.gameName());
-                preparedStatement.setString(4, gameJson);
+    @Override
+    public boolean updateGameIfVersion(GameData gameData, long expectedVersion) throws DataAccessException, SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (!writeUpdate(conn, gameData, expectedVersion)) {
+                    conn.rollback();
+                    return false;
+                }
+                conn.commit();
+                return true;
+            } catch (DataAccessException | SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
 
-                preparedStatement.setInt(5, gameData.gameID());
-                var numUpdates = preparedStatement.executeUpdate();
-                if (numUpdates == 0) {
+    /**
+     * Appends the moves made since the game was last stored, and takes a new snapshot once
+     * enough have built up. A game that does not carry on from the stored one, such as a
+     * replacement or the first game stored in a row that had none, gets a new snapshot and
+     * its log rewritten from the start. It carries on when its log hash over the stored
+     * number of moves matches the stored log hash.
+     * <p>
+     * With an expected version the row is read without a lock, and the update to it only
+     * applies if the version still matches; the moves are written after that update, once
+     * it holds the row. Without one, the row is locked as it is read and always updated.
+     *
+     * @return false if the game was not at the expected version, in which case nothing was written
+     */
+    private static boolean writeUpdate(Connection conn, GameData gameData, Long expectedVersion)
+            throws DataAccessException, SQLException {
+        int storedPly;
+        int snapshotPly;
+        long version;
+        long storedLogHash;
+        boolean storedGame;
+        var query = "SELECT snapshotPly, ply, version, logHash, game IS NOT NULL AS storedGame FROM gameData WHERE gameId=?"
+                + (expectedVersion == null ? " FOR UPDATE" : "");
+        try (var preparedStatement = conn.prepareStatement(query)) {
+            preparedStatement.setInt(1, gameData.gameID());
+            try (var rs = preparedStatement.executeQuery()) {
+                if (!rs.next()) {
                     throw new DataAccessException("cannot update GameData which doesn't exist");
                 }
+                snapshotPly = rs.getInt("snapshotPly");
+                storedPly = rs.getInt("ply");
+                version = rs.getLong("version");
+                storedLogHash = rs.getLong("logHash");
+                storedGame = rs.getBoolean("storedGame");
             }
         }
+        if (expectedVersion != null && version != expectedVersion) {
+            return false;
+        }
+
+        var game = gameData.game();
+        int ply = game == null ? 0 : game.getMoveCount();
+        boolean rewrite = game == null || !storedGame || ply < storedPly
+                || game.getLogHash(storedPly) != storedLogHash;
+        boolean snapshot = rewrite || ply - snapshotPly >= SNAPSHOT_INTERVAL;
+
+        // Claim the version first; another writer that got there in between leaves no row to update
+        var statement = "UPDATE gameData SET whiteUsername=?, blackUsername=?, gameName=?, ply=?, logHash=?, version=version+1"
+                + (snapshot ? ", game=?, snapshotPly=?" : "") + " WHERE gameId=? AND version=?";
+        try (var preparedStatement = conn.prepareStatement(statement)) {
+            int index = 1;
+            preparedStatement.setString(index++, gameData.whiteUsername());
+            preparedStatement.setString(index++, gameData.blackUsername());
+            preparedStatement.setString(index++, gameData.gameName());
+            preparedStatement.setInt(index++, ply);
+            preparedStatement.setLong(index++, game == null ? 0L : game.getLogHash(ply));
+            if (snapshot) {
+                preparedStatement.setBytes(index++, game == null ? null : game.toBytes());
+                preparedStatement.setInt(index++, ply);
+            }
+            preparedStatement.setInt(index++, gameData.gameID());
+            preparedStatement.setLong(index, version);
+            if (preparedStatement.executeUpdate() == 0) {
+                return false;
+            }
+        }
+
+        if (rewrite) {
+            try (var preparedStatement = conn.prepareStatement("DELETE FROM gameMoves WHERE gameId=?")) {
+                preparedStatement.setInt(1, gameData.gameID());
+                preparedStatement.executeUpdate();
+            }
+            storedPly = 0;
+        }
+        insertMoves(conn, gameData.gameID(), game, storedPly);
+        return true;
+    }
+
+    /**
+     * Appends a game's moves from fromPly onwards to gameMoves
+     */
+    private static void insertMoves(Connection conn, int gameID, ChessGame game, int fromPly) throws SQLException {
+        if (game == null || game.getMoveCount() <= fromPly) {
+            return;
+        }
+        try (var preparedStatement = conn.prepareStatement("INSERT INTO gameMoves (gameId, ply, move) VALUES(?, ?, ?)")) {
+            for (int ply = fromPly; ply < game.getMoveCount(); ply++) {
+                preparedStatement.setInt(1, gameID);
+                preparedStatement.setInt(2, ply);
+                preparedStatement.setShort(3, (short) game.getMove(ply).toPacked());
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    /**
+     * Plays the logged moves from fromPly onwards on a game restored from its snapshot
+     */
+    private static void replayMoves(Connection conn, int gameID, ChessGame game, int fromPly)
+            throws DataAccessException, SQLException {
+        var statement = "SELECT move FROM gameMoves WHERE gameId=? AND ply>=? ORDER BY ply";
+        try (var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.setInt(1, gameID);
+            preparedStatement.setInt(2, fromPly);
+            try (var rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    game.makeMove(ChessMove.fromPacked(rs.getShort("move")));
+                }
+            }
+        } catch (InvalidMoveException | IllegalArgumentException e) {
+            throw new DataAccessException(String.format("move log of game %d does not replay", gameID), e);
+        }
     }
 
     @Override
@@ -117,9 +382,10 @@ public class SQLGameDataAccess implements GameDataAccess {
     @Override
     public void clear() throws DataAccessException, SQLException {
         try (Connection conn = DatabaseManager.getConnection()) {
-            var statement = "TRUNCATE TABLE gameData";
-            try (var preparedStatement = conn.prepareStatement(statement)) {
-                preparedStatement.executeUpdate();
+            for (var table : new String[]{"gameMoves", "gameData"}) {
+                try (var preparedStatement = conn.prepareStatement("TRUNCATE TABLE " + table)) {
+                    preparedStatement.executeUpdate();
+                }
             }
         }
     }
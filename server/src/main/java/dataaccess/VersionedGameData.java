@@ -0,0 +1,13 @@
+package dataaccess;
+
+import model.GameData;
+
+/**
+ * A game together with the version it was read at. Each update to a game moves it to a
+ * new version, so an update made against this version fails if the game changed since.
+ *
+ * @param gameData the game as read
+ * @param version  the game's version when it was read
+ */
+public record VersionedGameData(GameData gameData, long version) {
+}
@@ -1,8 +1,9 @@
 package server;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import dataaccess.*;
 import model.GameData;
+import serialization.Serializer;
 
 import server.websocket.WebSocketHandler;
 import service.exception.AlreadyTakenException;
@@ -41,6 +42,8 @@ public class Server {
     private final UserService userService;
     private final GameService gameService;
     private final DatabaseService databaseService;
+    private final CachingGameDataAccess gameAccess;
+    private final WebSocketHandler webSocketHandler;
 
     public Server() {
         server = Javalin.create(config -> config.staticFiles.add("web"));
@@ -66,11 +69,11 @@ public class Server {
         // Set up each SQL DataAccess layer and configure the database
         SQLUserDataAccess dataAccess;
         SQLAuthDataAccess authAccess;
-        SQLGameDataAccess gameAccess;
         try {
             dataAccess = new SQLUserDataAccess();
             authAccess = new SQLAuthDataAccess();
-            gameAccess = new SQLGameDataAccess();
+            // Keep active games in memory, writing moves back to MySQL within a quarter second
+            gameAccess = new CachingGameDataAccess(new SQLGameDataAccess(), 250, 10 * 60 * 1000);
         }
         // throw a runtime error if we failed to configure the database
         catch (Throwable e) {
@@ -82,7 +85,7 @@ public class Server {
         gameService = new GameService(authAccess, gameAccess);
         databaseService = new DatabaseService(dataAccess, authAccess, gameAccess);
 
-        var webSocketHandler = new WebSocketHandler(userService, gameService);
+        webSocketHandler = new WebSocketHandler(userService, gameService);
 
         // Enable websocket connections
         server.ws("ws", ws -> {
@@ -94,27 +97,15 @@ public class Server {
 
     private void register(@NotNull Context ctx) {
 
-        var serializer = new Gson();
-        String reqJson = ctx.body();
-        var req = serializer.fromJson(reqJson, Map.class);
+        var serializer = Serializer.gson();
 
-        // Make sure the JSON body is valid
-        var usernameReq = req.get("username");
-        var passwordReq = req.get("password");
-        var emailReq = req.get("email");
-
-        if (usernameReq == null || passwordReq == null || emailReq == null) {
+        // Read the register request from the body, and make sure it is complete
+        var registerRequest = readRequest(ctx, RegisterRequest.class);
+        if (registerRequest == null || registerRequest.username() == null
+                || registerRequest.password() == null || registerRequest.email() == null) {
             returnError(ctx, "bad request", 400);
             return;
         }
-
-        // Get the serialized input from the JSON
-        var username = usernameReq.toString();
-        var password = passwordReq.toString();
-        var email = emailReq.toString();
-
-        // create a new register request for the specified user
-        var registerRequest = new RegisterRequest(username, password, email);
         var res = Map.of();
 
         // try to register the user and obtain an auth token for them
@@ -134,25 +125,14 @@ public class Server {
     }
 
     private void login(@NotNull Context ctx) {
-        var serializer = new Gson();
-        String reqJson = ctx.body();
-        var req = serializer.fromJson(reqJson, Map.class);
+        var serializer = Serializer.gson();
 
-        // Make sure the JSON body is valid
-        var usernameReq = req.get("username");
-        var passwordReq = req.get("password");
-
-        if (usernameReq == null || passwordReq == null) {
+        // Read the login request from the body, and make sure it is complete
+        var loginRequest = readRequest(ctx, LoginRequest.class);
+        if (loginRequest == null || loginRequest.username() == null || loginRequest.password() == null) {
             returnError(ctx, "bad request", 400);
             return;
         }
-
-        // Get the serialized input from the JSON
-        var username = usernameReq.toString();
-        var password = passwordReq.toString();
-
-        // create a new login request for the specified user
-        var loginRequest = new LoginRequest(username, password);
         var res = Map.of();
 
         // try to log in the user and obtain an auth token for them
@@ -182,7 +162,7 @@ public class Server {
         // try to log out the user
         try {
             userService.logout(logoutRequest);
-            var serializer = new Gson();
+            var serializer = Serializer.gson();
             ctx.result(serializer.toJson(res));
         }
         // handle exceptions
@@ -195,22 +175,15 @@ public class Server {
     }
 
     private void createGame(@NotNull Context ctx) {
-        var serializer = new Gson();
-        String reqJson = ctx.body();
-        var req = serializer.fromJson(reqJson, Map.class);
-
-        // Validate the request
-        String authToken = ctx.header("authorization");
-        var gameNameReq = req.get("gameName");
+        var serializer = Serializer.gson();
 
-        if (gameNameReq == null) {
+        // Validate the request; the body carries the game name, the header the auth token
+        var body = readRequest(ctx, CreateGameRequest.class);
+        if (body == null || body.gameName() == null) {
             returnError(ctx, "bad request", 400);
             return;
         }
-
-        // Create a createGame request
-        String gameName = gameNameReq.toString();
-        var createGameRequest = new CreateGameRequest(authToken, gameName);
+        var createGameRequest = new CreateGameRequest(ctx.header("authorization"), body.gameName());
         var res = Map.of();
 
         // try to create the game
@@ -228,32 +201,22 @@ public class Server {
     }
 
     private void joinGame(@NotNull Context ctx) {
-        var serializer = new Gson();
-        String reqJson = ctx.body();
-        var req = serializer.fromJson(reqJson, Map.class);
-
-        // Validate the request
-        var playerColorReq = req.get("playerColor");
-        var gameIDReq = req.get("gameID");
-        String authToken = ctx.header("authorization");
+        var serializer = Serializer.gson();
 
-        if (playerColorReq == null || gameIDReq == null) {
+        // Validate the request; the body carries the color and game, the header the auth token
+        var body = readRequest(ctx, JoinGameRequest.class);
+        if (body == null || body.playerColor() == null || body.gameID() == null) {
             returnError(ctx, "bad request", 400);
             return;
         }
 
         // Ensure the player color is in the expected format
-        String playerColor = playerColorReq.toString();
-        if (!(playerColor.equals("WHITE") || playerColor.equals("BLACK"))) {
+        if (!(body.playerColor().equals("WHITE") || body.playerColor().equals("BLACK"))) {
             returnError(ctx, "bad request", 400);
             return;
         }
 
-        // Convert the gameID to an Integer
-        Integer gameID = ((Double) gameIDReq).intValue();
-
-        // Create a joinGame request
-        var joinGameRequest = new JoinGameRequest(authToken, playerColor, gameID);
+        var joinGameRequest = new JoinGameRequest(ctx.header("authorization"), body.playerColor(), body.gameID());
         var res = Map.of();
 
         // try to join the game
@@ -286,7 +249,7 @@ public class Server {
         try {
             var listGamesResult = gameService.listGames(listGamesRequest);
             List<GameData> gamesList = new ArrayList<>(listGamesResult.gameDataList());
-            var serializer = new Gson();
+            var serializer = Serializer.gson();
             var res = Map.of("games", gamesList);
             ctx.result(serializer.toJson(res));
         }
@@ -303,7 +266,7 @@ public class Server {
         // clear each database
         try {
             databaseService.clear();
-            var serializer = new Gson();
+            var serializer = Serializer.gson();
             var res = Map.of();
             ctx.result(serializer.toJson(res));
 
@@ -313,8 +276,22 @@ public class Server {
         }
     }
 
+    /**
+     * Binds a JSON request body directly to a request record, leaving out any field the
+     * body does not have
+     *
+     * @return the request, or null if the body is empty or does not fit the record
+     */
+    private static <T> T readRequest(@NotNull Context ctx, Class<T> type) {
+        try {
+            return Serializer.gson().fromJson(ctx.body(), type);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
     private void returnError(@NotNull Context ctx, String message, Integer status) {
-        var body = new Gson().toJson(Map.of("message", String.format("Error: %s", message)));
+        var body = Serializer.gson().toJson(Map.of("message", String.format("Error: %s", message)));
         ctx.status(status);
         ctx.json(body);
     }
@@ -326,5 +303,14 @@ public class Server {
 
     public void stop() {
         server.stop();
+        // Let the commands already queued finish
+        webSocketHandler.close();
+        // Write the moves still waiting in memory before letting go of the connections
+        try {
+            gameAccess.close();
+        } catch (DataAccessException | SQLException e) {
+            throw new RuntimeException(e);
+        }
+        DatabaseManager.closeIdleConnections();
     }
 }
@@ -1,38 +1,67 @@
 package server.websocket;
 
-import com.google.gson.Gson;
 import org.eclipse.jetty.websocket.api.Session;
+import serialization.Serializer;
 import websocket.messages.ServerMessage;
 
 import java.io.IOException;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class ConnectionManager {
-    // Data structure maps Sessions to their appropriate gameIDs
-    public final ConcurrentHashMap<Session, Integer> connections = new ConcurrentHashMap<>();
+    // Sessions connected to each gameID, so a broadcast only visits that game's audience
+    private final ConcurrentHashMap<Integer, Set<Session>> gameSessions = new ConcurrentHashMap<>();
+    // The gameID each Session is connected to, to find its set again when it goes away
+    private final ConcurrentHashMap<Session, Integer> sessionGames = new ConcurrentHashMap<>();
 
     public void add(Session session, Integer gameID) {
-        connections.put(session, gameID);
+        // A session follows one game at a time
+        Integer previous = sessionGames.put(session, gameID);
+        if (previous != null && !previous.equals(gameID)) {
+            removeFromGame(session, previous);
+        }
+        gameSessions.compute(gameID, (id, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+            }
+            sessions.add(session);
+            return sessions;
+        });
     }
 
     public void remove(Session session) {
-        connections.remove(session);
+        Integer gameID = sessionGames.remove(session);
+        if (gameID != null) {
+            removeFromGame(session, gameID);
+        }
     }
 
     public void broadcast(Session excludeSession, Integer gameID, ServerMessage notification) throws IOException {
-        String msg = new Gson().toJson(notification);
-        for (Session c : connections.keySet()) {
-            // Only broadcast to sessions connected to our same gameID
-            Integer currGameID = connections.get(c);
-            if (!currGameID.equals(gameID)) {
+        var sessions = gameSessions.get(gameID);
+        if (sessions == null) {
+            return;
+        }
+        String msg = Serializer.gson().toJson(notification);
+        for (Session c : sessions) {
+            // Drop sessions that closed without leaving. They are taken out of this game's set
+            // directly, since a close racing with add may have left no reverse entry to find it by
+            if (!c.isOpen()) {
+                removeFromGame(c, gameID);
+                sessionGames.remove(c, gameID);
                 continue;
             }
             // Broadcast to all other clients
-            if (c.isOpen()) {
-                if (!c.equals(excludeSession)) {
-                    c.getRemote().sendString(msg);
-                }
+            if (!c.equals(excludeSession)) {
+                c.getRemote().sendString(msg);
             }
         }
     }
-}
\ No newline at end of file
+
+    private void removeFromGame(Session session, Integer gameID) {
+        // Drop the game's set along with its last session, so finished games do not pile up
+        gameSessions.computeIfPresent(gameID, (id, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+}
@@ -0,0 +1,72 @@
+package server.websocket;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs tasks one at a time per key, in the order they were submitted, and tasks with
+ * different keys in parallel.
+ * <p>
+ * Each key's tasks are chained onto the last one submitted for it, and run on virtual
+ * threads, so a key with nothing queued costs nothing and waiting on one key never holds
+ * up another. A task that throws does not stop the tasks queued behind it.
+ */
+class KeyedExecutor<K> implements AutoCloseable {
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    // The last task submitted for each key that may not have finished yet
+    private final ConcurrentHashMap<K, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Queues a task to run after every task already submitted with the same key
+     *
+     * @return completes once the task has run, exceptionally if it threw or the executor
+     * has been closed
+     */
+    CompletableFuture<Void> submit(K key, Runnable task) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("executor has been closed"));
+        }
+        var queued = tails.compute(key, (k, tail) -> tail == null
+                ? CompletableFuture.runAsync(task, workers)
+                : tail.handle((result, failure) -> null).thenRunAsync(task, workers));
+
+        // Forget the key once its queue has run dry, unless another task was chained on since
+        queued.whenComplete((result, failure) -> tails.remove(key, queued));
+        return queued;
+    }
+
+    /**
+     * Stops taking new tasks and waits up to ten seconds for the queued ones to finish
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // Tasks still queued are handed to the workers as their predecessors finish, so let
+        // every queue run dry before shutting the workers down
+        try {
+            CompletableFuture.allOf(tails.values().toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException ignored) {
+            // Failed tasks are reported to their submitters; slow ones are cut off below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
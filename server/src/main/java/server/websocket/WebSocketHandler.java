@@ -1,7 +1,8 @@
 package server.websocket;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.GameStatus;
+import com.google.gson.JsonParseException;
 import io.javalin.websocket.WsCloseContext;
 import io.javalin.websocket.WsCloseHandler;
 import io.javalin.websocket.WsConnectContext;
@@ -13,6 +14,7 @@ import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
 
 import org.jetbrains.annotations.NotNull;
+import serialization.Serializer;
 import service.GameService;
 import service.UserService;
 import websocket.commands.MakeMoveCommand;
@@ -25,13 +27,27 @@ import websocket.messages.ServerMessage;
 
 import java.io.IOException;
 import java.util.concurrent.ConcurrentHashMap;
-
-public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsCloseHandler {
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handles the WebSocket commands of every game.
+ * <p>
+ * Commands are parsed on the Jetty thread that received them, then run on a queue of
+ * their own game, so each game's commands run one after another in the order they
+ * arrived while different games proceed in parallel. A command that cannot be read, or
+ * names no game, has no queue to go to, so its error is sent straight from the Jetty
+ * thread and may overlap with sends made by a game's queue.
+ */
+public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsCloseHandler, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(WebSocketHandler.class.getName());
 
     private final UserService userService;
     private final GameService gameService;
 
     private final ConnectionManager connections = new ConnectionManager();
+    private final KeyedExecutor<Integer> gameQueues = new KeyedExecutor<>();
     public final ConcurrentHashMap<Integer, Integer> completeGames = new ConcurrentHashMap<>();
 
     public WebSocketHandler(UserService userService, GameService gameService) {
@@ -47,9 +63,40 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
 
     @Override
     public void handleMessage(@NotNull WsMessageContext ctx) {
+        Session session = ctx.session;
+        String message = ctx.message();
+
+        UserGameCommand command;
+        try {
+            command = Serializer.gson().fromJson(message, UserGameCommand.class);
+        } catch (JsonParseException ex) {
+            sendError(session, ex);
+            return;
+        }
+        if (command == null || command.getGameID() == null) {
+            sendError(session, new Exception("missing game ID"));
+            return;
+        }
+        Integer gameID = command.getGameID();
+
+        gameQueues.submit(gameID, () -> execute(session, message, command))
+                .exceptionally(ex -> {
+                    LOGGER.log(Level.WARNING, "could not run command for game " + gameID, ex);
+                    return null;
+                });
+    }
+
+    /**
+     * Stops taking commands and waits for the ones already queued to finish
+     */
+    @Override
+    public void close() {
+        gameQueues.close();
+    }
 
+    // Runs one command on its game's queue
+    private void execute(Session session, String message, UserGameCommand command) {
         try {
-            UserGameCommand command = new Gson().fromJson(ctx.message(), UserGameCommand.class);
             Integer gameID = command.getGameID();
             String authToken = command.getAuthToken();
 
@@ -57,24 +104,30 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
             GameData gameData = gameService.getGame(gameID);
 
             switch (command.getCommandType()) {
-                case CONNECT -> connect(ctx.session, gameID, authData, gameData);
-                case MAKE_MOVE -> makeMove(ctx.session, ctx.message(), gameID, authData, gameData);
-                case LEAVE -> leave(ctx.session, gameID, authData, gameData);
-                case RESIGN -> resign(ctx.session, gameID, authData, gameData);
+                case CONNECT -> connect(session, gameID, authData, gameData);
+                case MAKE_MOVE -> makeMove(session, message, gameID, authData, gameData);
+                case LEAVE -> leave(session, gameID, authData, gameData);
+                case RESIGN -> resign(session, gameID, authData, gameData);
             }
         } catch (Exception ex) {
-            try {
-                ErrorMessage msg = new ErrorMessage(ServerMessage.ServerMessageType.ERROR, ex.getMessage());
-                ctx.session.getRemote().sendString(new Gson().toJson(msg));
-            } catch (IOException ex2) {
-                throw new RuntimeException("Communication failure");
-            }
+            sendError(session, ex);
+        }
+    }
+
+    private void sendError(Session session, Exception ex) {
+        try {
+            ErrorMessage msg = new ErrorMessage(ServerMessage.ServerMessageType.ERROR, ex.getMessage());
+            session.getRemote().sendString(Serializer.gson().toJson(msg));
+        } catch (IOException ex2) {
+            throw new RuntimeException("Communication failure");
         }
     }
 
     @Override
     public void handleClose(@NotNull WsCloseContext ctx) {
         //System.out.println("Websocket closed");
+        // Stop broadcasting to a client that disconnected without leaving
+        connections.remove(ctx.session);
     }
 
     // Connection request received from server
@@ -100,7 +153,7 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
         // Send a LOAD_GAME message back to the client
         ChessGame game = gameData.game();
         LoadGameMessage message = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, game);
-        session.getRemote().sendString(new Gson().toJson(message));
+        session.getRemote().sendString(Serializer.gson().toJson(message));
 
         // Broadcast the appropriate notification
         String msg;
@@ -180,12 +233,12 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
 
         // Send the notification to ALL clients
         connections.broadcast(session, gameID, notification);
-        session.getRemote().sendString(new Gson().toJson(notification));
+        session.getRemote().sendString(Serializer.gson().toJson(notification));
     }
 
     private void makeMove(Session session, String jsonInput, Integer gameID, AuthData authData, GameData gameData) throws Exception {
 
-        MakeMoveCommand command = new Gson().fromJson(jsonInput, MakeMoveCommand.class);
+        MakeMoveCommand command = Serializer.gson().fromJson(jsonInput, MakeMoveCommand.class);
         var move = command.getMove();
 
         // Cannot make a move if the game has ended
@@ -228,7 +281,7 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
         // Send a LOAD_GAME message back to ALL clients
         LoadGameMessage message = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, newGame);
         connections.broadcast(session, gameID, message);
-        session.getRemote().sendString(new Gson().toJson(message));
+        session.getRemote().sendString(Serializer.gson().toJson(message));
 
         // Broadcast notification to all other clients
         var startPos = move.getStartPosition();
@@ -241,51 +294,39 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
         NotificationMessage notification = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, msg);
         connections.broadcast(session, gameID, notification);
 
-        // Handle checks, checkmates, stalemates
-        if (newGame.isInCheck(ChessGame.TeamColor.WHITE) && !newGame.isInCheckmate(ChessGame.TeamColor.WHITE)) {
-            msg = String.format("User %s is in check", whiteUsername);
-            notification = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, msg);
-            connections.broadcast(session, gameID, notification);
-            session.getRemote().sendString(new Gson().toJson(notification));
-        }
-
-        if (newGame.isInCheck(ChessGame.TeamColor.BLACK) && !newGame.isInCheckmate(ChessGame.TeamColor.BLACK)) {
-            msg = String.format("User %s is in check", blackUsername);
-            notification = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, msg);
-            connections.broadcast(session, gameID, notification);
-            session.getRemote().sendString(new Gson().toJson(notification));
-        }
-
-        if (newGame.isInCheckmate(ChessGame.TeamColor.WHITE)) {
-            msg = String.format("User %s is in checkmate", whiteUsername);
-            notification = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, msg);
-            connections.broadcast(session, gameID, notification);
-            session.getRemote().sendString(new Gson().toJson(notification));
-            completeGames.put(gameID, gameID);
-        }
-
-        if (newGame.isInCheckmate(ChessGame.TeamColor.BLACK)) {
-            msg = String.format("User %s is in checkmate", blackUsername);
-            notification = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, msg);
-            connections.broadcast(session, gameID, notification);
-            session.getRemote().sendString(new Gson().toJson(notification));
-            completeGames.put(gameID, gameID);
+        // Handle checks, checkmates, stalemates, using the status computed once for the new position
+        GameStatus status = newGame.getGameStatus();
+        for (var state : new GameStatus.State[]{GameStatus.State.CHECK, GameStatus.State.CHECKMATE, GameStatus.State.STALEMATE}) {
+            for (var color : ChessGame.TeamColor.values()) {
+                if (status.of(color) != state) {
+                    continue;
+                }
+                String username = color == ChessGame.TeamColor.WHITE ? whiteUsername : blackUsername;
+                msg = String.format("User %s is in %s", username, state.name().toLowerCase());
+                notification = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, msg);
+                connections.broadcast(session, gameID, notification);
+                session.getRemote().sendString(Serializer.gson().toJson(notification));
+                if (state.isGameOver()) {
+                    completeGames.put(gameID, gameID);
+                }
+            }
         }
 
-        if (newGame.isInStalemate(ChessGame.TeamColor.WHITE)) {
-            msg = String.format("User %s is in stalemate", whiteUsername);
-            notification = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, msg);
-            connections.broadcast(session, gameID, notification);
-            session.getRemote().sendString(new Gson().toJson(notification));
-            completeGames.put(gameID, gameID);
+        // Dead positions, repeated positions and long stretches without progress end the game in a draw
+        String drawReason = null;
+        if (newGame.isInsufficientMaterial()) {
+            drawReason = "insufficient material";
+        } else if (newGame.isThreefoldRepetition()) {
+            drawReason = "threefold repetition";
+        } else if (newGame.isFiftyMoveRule()) {
+            drawReason = "the fifty-move rule";
         }
-
-        if (newGame.isInStalemate(ChessGame.TeamColor.BLACK)) {
-            msg = String.format("User %s is in stalemate", blackUsername);
+        if (drawReason != null && !completeGames.contains(gameID)) {
+            msg = String.format("Game %s is a draw by %s", gameName, drawReason);
             notification = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, msg);
             connections.broadcast(session, gameID, notification);
-            session.getRemote().sendString(new Gson().toJson(notification));
+            session.getRemote().sendString(Serializer.gson().toJson(notification));
             completeGames.put(gameID, gameID);
         }
     }
-}
\ No newline at end of file
+}
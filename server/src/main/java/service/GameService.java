@@ -22,6 +22,9 @@ import java.sql.SQLException;
 
 public class GameService {
 
+    // Attempts at an update before giving up on a game other requests keep changing
+    private static final int MAX_UPDATE_ATTEMPTS = 10;
+
     private Integer currGameID;
     private final AuthDataAccess authDataAccess;
     private final GameDataAccess gameDataAccess;
@@ -63,40 +66,46 @@ public class GameService {
         if (responseData == null) {
             throw new UnauthorizedException("unauthorized");
         } else {
-            // get gameData for the game
-            var gameData = gameDataAccess.getGame(joinGameRequest.gameID());
-            if (gameData == null) {
-                throw new MissingGameException("game does not exist");
-            }
-
-            GameData newGameData;
-            var desiredUsername = responseData.username();
-
-            // ensure the user slot we want to fill isn't already occupied;
-            // assuming it isn't, we can fill in the new gameData
-            var desiredColor = joinGameRequest.playerColor();
-            if (desiredColor.equals("WHITE")) {
-                if (gameData.whiteUsername() != null) {
-                    throw new AlreadyTakenException("already taken");
-                } else {
-                    newGameData = new GameData(gameData.gameID(),
-                            desiredUsername, gameData.blackUsername(),
-                            gameData.gameName(), gameData.game());
+            for (int attempt = 1; ; attempt++) {
+                // get gameData for the game
+                var versioned = gameDataAccess.getVersionedGame(joinGameRequest.gameID());
+                if (versioned == null) {
+                    throw new MissingGameException("game does not exist");
                 }
-            } else if (desiredColor.equals("BLACK")) {
-                if (gameData.blackUsername() != null) {
-                    throw new AlreadyTakenException("already taken");
+                var gameData = versioned.gameData();
+
+                GameData newGameData;
+                var desiredUsername = responseData.username();
+
+                // ensure the user slot we want to fill isn't already occupied;
+                // assuming it isn't, we can fill in the new gameData
+                var desiredColor = joinGameRequest.playerColor();
+                if (desiredColor.equals("WHITE")) {
+                    if (gameData.whiteUsername() != null) {
+                        throw new AlreadyTakenException("already taken");
+                    } else {
+                        newGameData = new GameData(gameData.gameID(),
+                                desiredUsername, gameData.blackUsername(),
+                                gameData.gameName(), copyGame(gameData.game()));
+                    }
+                } else if (desiredColor.equals("BLACK")) {
+                    if (gameData.blackUsername() != null) {
+                        throw new AlreadyTakenException("already taken");
+                    } else {
+                        newGameData = new GameData(gameData.gameID(),
+                                gameData.whiteUsername(), desiredUsername,
+                                gameData.gameName(), copyGame(gameData.game()));
+                    }
                 } else {
-                    newGameData = new GameData(gameData.gameID(),
-                            gameData.whiteUsername(), desiredUsername,
-                            gameData.gameName(), gameData.game());
+                    throw new BadRequestException("bad request");
                 }
-            } else {
-                throw new BadRequestException("bad request");
-            }
 
-            // we can now safely update the gameData
-            gameDataAccess.updateGame(newGameData);
+                // update the gameData, unless someone else got there first; then check again
+                if (gameDataAccess.updateGameIfVersion(newGameData, versioned.version())) {
+                    return;
+                }
+                checkAttempts(gameData.gameID(), attempt);
+            }
         }
     }
 
@@ -123,49 +132,82 @@ public class GameService {
     }
 
     public void removeUserFromGame(int gameID, ChessGame.TeamColor playerColor) throws DataAccessException, SQLException {
-        GameData gameData = gameDataAccess.getGame(gameID);
-        GameData newGameData;
+        for (int attempt = 1; ; attempt++) {
+            var versioned = gameDataAccess.getVersionedGame(gameID);
+            GameData gameData = versioned.gameData();
+            GameData newGameData;
 
-        // Remove the specified user from the gameData
-        if (playerColor == ChessGame.TeamColor.WHITE) {
-            newGameData = new GameData(gameID, null, gameData.blackUsername(), gameData.gameName(), gameData.game());
-        } else {
-            newGameData = new GameData(gameID, gameData.whiteUsername(), null, gameData.gameName(), gameData.game());
-        }
+            // Remove the specified user from the gameData, on a copy of the game like every update
+            ChessGame game = copyGame(gameData.game());
+            if (playerColor == ChessGame.TeamColor.WHITE) {
+                newGameData = new GameData(gameID, null, gameData.blackUsername(), gameData.gameName(), game);
+            } else {
+                newGameData = new GameData(gameID, gameData.whiteUsername(), null, gameData.gameName(), game);
+            }
 
-        // Update the gameData
-        gameDataAccess.updateGame(newGameData);
+            // Update the gameData, reading it again if it changed in the meantime
+            if (gameDataAccess.updateGameIfVersion(newGameData, versioned.version())) {
+                return;
+            }
+            checkAttempts(gameID, attempt);
+        }
     }
 
     public void makeMove(int gameID, ChessMove move) throws Exception {
-        GameData gameData = gameDataAccess.getGame(gameID);
+        for (int attempt = 1; ; attempt++) {
+            var versioned = gameDataAccess.getVersionedGame(gameID);
+            GameData gameData = versioned.gameData();
 
-        GameData newGameData;
-        ChessGame currGame = gameData.game();
-        ChessBoard currBoard = currGame.getBoard();
+            GameData newGameData;
+            // Work on a copy, since other requests may be reading the stored game
+            ChessGame currGame = copyGame(gameData.game());
+            ChessBoard currBoard = currGame.getBoard();
 
-        var moveStart = move.getStartPosition();
+            var moveStart = move.getStartPosition();
 
-        // Go through disqualifying cases
-        var movePiece = currBoard.getPiece(moveStart);
-        if (movePiece == null) {
-            throw new Exception("no piece provided for move");
-        }
+            // Go through disqualifying cases
+            var movePiece = currBoard.getPiece(moveStart);
+            if (movePiece == null) {
+                throw new Exception("no piece provided for move");
+            }
+
+            var pieceColor = movePiece.getTeamColor();
+            if (pieceColor != currGame.getTeamTurn()) {
+                throw new Exception("invalid move");
+            }
+
+            // Check if the move is valid
+            var validMoves = currGame.validMoves(moveStart);
+            if (validMoves.contains(move)) {
+                currGame.makeMove(move);
+                newGameData = new GameData(gameID, gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName(), currGame);
 
-        var pieceColor = movePiece.getTeamColor();
-        if (pieceColor != currGame.getTeamTurn()) {
-            throw new Exception("invalid move");
+                // If another move got in first, check this one again against the new position
+                if (gameDataAccess.updateGameIfVersion(newGameData, versioned.version())) {
+                    return;
+                }
+                checkAttempts(gameID, attempt);
+
+            } else {
+                throw new Exception("invalid move");
+            }
         }
+    }
 
-        // Check if the move is valid
-        var validMoves = currGame.validMoves(moveStart);
-        if (validMoves.contains(move)) {
-            currGame.makeMove(move);
-            newGameData = new GameData(gameID, gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName(), currGame);
-            gameDataAccess.updateGame(newGameData);
+    /**
+     * Copies a game for an update, so the stored instance other requests may be reading is
+     * never handed back to the data access layer to be changed or serialized
+     */
+    private static ChessGame copyGame(ChessGame game) {
+        return game == null ? null : ChessGame.fromBytes(game.toBytes());
+    }
 
-        } else {
-            throw new Exception("invalid move");
+    /**
+     * Gives up on an update that keeps losing to other updates of the same game
+     */
+    private static void checkAttempts(int gameID, int attempt) throws DataAccessException {
+        if (attempt >= MAX_UPDATE_ATTEMPTS) {
+            throw new DataAccessException(String.format("game %d is changing too often to update, try again", gameID));
         }
     }
 }
@@ -0,0 +1,136 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.GameData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+
+public class CachingGameDataAccessTest {
+
+    // Counts the calls that reach the backing store
+    private static class CountingGameDataAccess extends MemoryGameDataAccess {
+        int reads;
+        int batches;
+        int writes;
+
+        @Override
+        public VersionedGameData getVersionedGame(Integer gameID) {
+            reads++;
+            return super.getVersionedGame(gameID);
+        }
+
+        @Override
+        public void updateGames(Collection<GameData> games) throws DataAccessException {
+            batches++;
+            for (var gameData : games) {
+                writes++;
+                updateGame(gameData);
+            }
+        }
+    }
+
+    private CountingGameDataAccess backing;
+    private CachingGameDataAccess cache;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        backing = new CountingGameDataAccess();
+        backing.createGame(new GameData(1, "white", null, "first", new ChessGame()));
+        backing.createGame(new GameData(2, null, null, "second", new ChessGame()));
+        // Flush by hand only, so the tests decide when writes happen
+        cache = new CachingGameDataAccess(backing, 60 * 60 * 1000, 60 * 60 * 1000);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        cache.close();
+    }
+
+    @Test
+    public void readsAreServedFromMemory() throws Exception {
+        var first = cache.getGame(1);
+        Assertions.assertSame(first, cache.getGame(1));
+        Assertions.assertEquals(1, backing.reads);
+        Assertions.assertNull(cache.getGame(3));
+    }
+
+    @Test
+    public void updatesAreCoalescedUntilFlushed() throws Exception {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        cache.updateGame(new GameData(1, "white", null, "first", game));
+        game.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        cache.updateGame(new GameData(1, "white", "black", "first", game));
+
+        // The backing store has not seen either update yet, but readers of the cache have
+        Assertions.assertEquals(new ChessGame(), backing.getGame(1).game());
+        Assertions.assertEquals("black", cache.getGame(1).blackUsername());
+
+        cache.flush();
+        Assertions.assertEquals(1, backing.batches);
+        Assertions.assertEquals(1, backing.writes);
+        Assertions.assertEquals(game, backing.getGame(1).game());
+        Assertions.assertEquals("black", backing.getGame(1).blackUsername());
+
+        // Nothing is left to write
+        cache.flush();
+        Assertions.assertEquals(1, backing.batches);
+    }
+
+    @Test
+    public void writtenGameIsASnapshot() throws Exception {
+        var gameData = cache.getGame(1);
+        cache.updateGame(gameData);
+
+        // A change made after the update is not part of it
+        gameData.game().makeMove(new ChessMove(ChessPosition.of(2, 1), ChessPosition.of(3, 1), null));
+        cache.flush();
+        Assertions.assertEquals(new ChessGame(), backing.getGame(1).game());
+    }
+
+    @Test
+    public void closeWritesPendingUpdates() throws Exception {
+        cache.updateGame(new GameData(2, "white", "black", "second", new ChessGame()));
+        cache.close();
+        Assertions.assertEquals("white", backing.getGame(2).whiteUsername());
+    }
+
+    @Test
+    public void missingGamesCannotBeUpdated() {
+        Assertions.assertThrows(DataAccessException.class,
+                () -> cache.updateGame(new GameData(3, null, null, "third", new ChessGame())));
+    }
+
+    @Test
+    public void staleVersionsAreTurnedDown() throws Exception {
+        var versioned = cache.getVersionedGame(2);
+        var white = new GameData(2, "white", null, "second", new ChessGame());
+        Assertions.assertTrue(cache.updateGameIfVersion(white, versioned.version()));
+
+        // The second update was based on the game before the first one
+        var other = new GameData(2, "other", null, "second", new ChessGame());
+        Assertions.assertFalse(cache.updateGameIfVersion(other, versioned.version()));
+        Assertions.assertEquals(white, cache.getGame(2));
+
+        cache.flush();
+        Assertions.assertEquals("white", backing.getGame(2).whiteUsername());
+    }
+
+    @Test
+    public void listAndClearSeePendingUpdates() throws Exception {
+        cache.updateGame(new GameData(2, "white", "black", "second", new ChessGame()));
+        Assertions.assertTrue(cache.listGames().contains(new GameData(2, "white", "black", "second", null)));
+
+        cache.updateGame(new GameData(1, "white", "black", "first", new ChessGame()));
+        cache.clear();
+        cache.flush();
+        Assertions.assertTrue(backing.listGames().isEmpty());
+        Assertions.assertNull(cache.getGame(1));
+    }
+}
@@ -0,0 +1,128 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConnectionPoolTest {
+
+    // Stand-ins for physical connections, and whether each has been closed
+    private final List<boolean[]> closed = new ArrayList<>();
+    private boolean valid = true;
+
+    private Connection openFake() {
+        var isClosed = new boolean[1];
+        closed.add(isClosed);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        isClosed[0] = true;
+                        yield null;
+                    }
+                    case "isClosed" -> isClosed[0];
+                    case "isValid" -> valid;
+                    case "getAutoCommit" -> true;
+                    case "getCatalog" -> "chess";
+                    default -> null;
+                });
+    }
+
+    private ConnectionPool pool(int maxSize, long idleTimeoutMillis, long validateIdleMillis) {
+        return new ConnectionPool(this::openFake, maxSize, 50, idleTimeoutMillis, validateIdleMillis, 1);
+    }
+
+    @Test
+    public void returnedConnectionsAreReused() throws SQLException {
+        var pool = pool(2, 60_000, 60_000);
+        try (var conn = pool.borrow()) {
+            Assertions.assertEquals("chess", conn.getCatalog());
+        }
+        try (var conn = pool.borrow()) {
+            Assertions.assertFalse(conn.isClosed());
+        }
+
+        var stats = pool.stats();
+        Assertions.assertEquals(2, stats.borrowed());
+        Assertions.assertEquals(1, stats.created());
+        Assertions.assertEquals(1, stats.idle());
+        Assertions.assertFalse(closed.get(0)[0]);
+    }
+
+    @Test
+    public void borrowersWaitForAFreeConnection() throws SQLException {
+        var pool = pool(1, 60_000, 60_000);
+        try (var ignored = pool.borrow()) {
+            Assertions.assertThrows(SQLException.class, pool::borrow);
+        }
+        Assertions.assertEquals(1, pool.stats().timeouts());
+        Assertions.assertTrue(pool.stats().maxWaitNanos() > 0);
+
+        // The connection is free again once it is returned
+        pool.borrow().close();
+    }
+
+    @Test
+    public void closedHandlesStopWorking() throws SQLException {
+        var pool = pool(1, 60_000, 60_000);
+        var conn = pool.borrow();
+        conn.close();
+        conn.close();
+
+        Assertions.assertTrue(conn.isClosed());
+        Assertions.assertThrows(SQLException.class, conn::getCatalog);
+        Assertions.assertEquals(1, pool.stats().idle());
+    }
+
+    @Test
+    public void brokenAndExpiredConnectionsAreReplaced() throws SQLException, InterruptedException {
+        // Every idle connection is validated before reuse
+        var validated = pool(1, 60_000, 0);
+        validated.borrow().close();
+        Thread.sleep(2);
+        valid = false;
+        validated.borrow().close();
+        Assertions.assertEquals(2, validated.stats().created());
+        Assertions.assertTrue(closed.get(0)[0]);
+
+        // Every idle connection expires immediately
+        valid = true;
+        var expiring = pool(1, 0, 60_000);
+        expiring.borrow().close();
+        Thread.sleep(2);
+        expiring.borrow().close();
+        Assertions.assertEquals(2, expiring.stats().created());
+        Assertions.assertEquals(1, expiring.stats().open());
+    }
+
+    @Test
+    public void closeIdleKeepsPoolUsable() throws SQLException {
+        var pool = pool(2, 60_000, 60_000);
+        pool.borrow().close();
+        pool.closeIdle();
+        Assertions.assertTrue(closed.get(0)[0]);
+        Assertions.assertEquals(0, pool.stats().open());
+
+        pool.borrow().close();
+        Assertions.assertEquals(2, pool.stats().created());
+    }
+
+    @Test
+    public void connectionsInUseAreClosedAfterCloseIdle() throws SQLException {
+        var pool = pool(2, 60_000, 60_000);
+        var conn = pool.borrow();
+        pool.closeIdle();
+        conn.close();
+        Assertions.assertTrue(closed.get(0)[0]);
+        Assertions.assertEquals(0, pool.stats().open());
+        Assertions.assertEquals(0, pool.stats().idle());
+
+        // Borrowing again puts the pool back to keeping returned connections
+        pool.borrow().close();
+        Assertions.assertEquals(1, pool.stats().idle());
+    }
+}
@@ -120,6 +120,40 @@ public class GameDataAccessTest {
         }
     }
 
+    @Test
+    public void updateGameReplacesGame() {
+        try {
+            GameData gameData1 = new GameData(1, "white", "black", "test", new ChessGame());
+            gameDataAccess.createGame(gameData1);
+
+            // replace the game with a different position, also with no moves made yet
+            String fen = "4k3/8/8/8/8/8/8/4K2R w K - 0 1";
+            ChessGame setUpGame = ChessGame.fromFen(fen);
+            gameData1 = new GameData(1, "white", "black", "test", setUpGame);
+            gameDataAccess.updateGame(gameData1);
+            Assertions.assertEquals(gameData1, gameDataAccess.getGame(1));
+
+            // carry on from there
+            setUpGame.makeMove(new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 7), null));
+            gameDataAccess.updateGame(gameData1);
+            var stored = gameDataAccess.getGame(1).game();
+            Assertions.assertEquals(setUpGame, stored);
+            Assertions.assertEquals(1, stored.getMoveCount());
+
+            // replace it with a game that made a different first move
+            ChessGame otherGame = ChessGame.fromFen(fen);
+            otherGame.makeMove(new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 6), null));
+            gameData1 = new GameData(1, "white", "black", "test", otherGame);
+            gameDataAccess.updateGame(gameData1);
+            stored = gameDataAccess.getGame(1).game();
+            Assertions.assertEquals(otherGame, stored);
+            Assertions.assertEquals(otherGame.getMove(0), stored.getMove(0));
+
+        } catch (Exception e) {
+            Assertions.fail(e.getMessage());
+        }
+    }
+
     @Test
     public void updateGameInvalid() {
         try {
@@ -141,6 +175,36 @@ public class GameDataAccessTest {
         }
     }
 
+    @Test
+    public void updateGameIfVersionNormal() {
+        try {
+            GameData gameData1 = new GameData(1, null, null, "test", new ChessGame());
+            gameDataAccess.createGame(gameData1);
+            var versioned = gameDataAccess.getVersionedGame(1);
+
+            // the first update based on this version succeeds and moves the game to a new version
+            gameData1 = new GameData(1, "white", null, "test", new ChessGame());
+            Assertions.assertTrue(gameDataAccess.updateGameIfVersion(gameData1, versioned.version()));
+            Assertions.assertEquals(gameData1, gameDataAccess.getGame(1));
+            Assertions.assertNotEquals(versioned.version(), gameDataAccess.getVersionedGame(1).version());
+
+            // a second update based on the old version is turned down and changes nothing
+            var gameData2 = new GameData(1, "other", null, "test", new ChessGame());
+            Assertions.assertFalse(gameDataAccess.updateGameIfVersion(gameData2, versioned.version()));
+            Assertions.assertEquals(gameData1, gameDataAccess.getGame(1));
+
+        } catch (Exception e) {
+            Assertions.fail(e.getMessage());
+        }
+    }
+
+    @Test
+    public void updateGameIfVersionInvalid() {
+        // try to update a non-existent game (will give DataAccessException)
+        Assertions.assertThrows(DataAccessException.class, () ->
+                gameDataAccess.updateGameIfVersion(new GameData(2, null, "black", "test", new ChessGame()), 0));
+    }
+
     @Test
     public void listGamesNormal() {
         try {
@@ -0,0 +1,91 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConnectionManagerTest {
+
+    private final ConnectionManager connections = new ConnectionManager();
+    private final NotificationMessage notification =
+            new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, "hello");
+
+    // Stand-in for a client connection that records what it was sent
+    private static class FakeSession {
+        final List<String> received = new ArrayList<>();
+        boolean open = true;
+        final Session session;
+
+        FakeSession() {
+            var remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString")) {
+                            received.add((String) args[0]);
+                        }
+                        return null;
+                    });
+            session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                    new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getRemote" -> remote;
+                        case "isOpen" -> open;
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        default -> null;
+                    });
+        }
+    }
+
+    @Test
+    public void broadcastReachesOnlyOtherSessionsOfTheGame() throws Exception {
+        var sender = new FakeSession();
+        var watcher = new FakeSession();
+        var elsewhere = new FakeSession();
+        connections.add(sender.session, 1);
+        connections.add(watcher.session, 1);
+        connections.add(elsewhere.session, 2);
+
+        connections.broadcast(sender.session, 1, notification);
+        Assertions.assertTrue(sender.received.isEmpty());
+        Assertions.assertEquals(1, watcher.received.size());
+        Assertions.assertTrue(elsewhere.received.isEmpty());
+    }
+
+    @Test
+    public void removedAndClosedSessionsGetNothing() throws Exception {
+        var left = new FakeSession();
+        var closed = new FakeSession();
+        var watcher = new FakeSession();
+        connections.add(left.session, 1);
+        connections.add(closed.session, 1);
+        connections.add(watcher.session, 1);
+
+        connections.remove(left.session);
+        closed.open = false;
+        connections.broadcast(null, 1, notification);
+        closed.open = true;
+        connections.broadcast(null, 1, notification);
+
+        Assertions.assertTrue(left.received.isEmpty());
+        Assertions.assertTrue(closed.received.isEmpty());
+        Assertions.assertEquals(2, watcher.received.size());
+    }
+
+    @Test
+    public void sessionFollowsTheGameItLastJoined() throws Exception {
+        var watcher = new FakeSession();
+        connections.add(watcher.session, 1);
+        connections.add(watcher.session, 2);
+
+        connections.broadcast(null, 1, notification);
+        Assertions.assertTrue(watcher.received.isEmpty());
+        connections.broadcast(null, 2, notification);
+        Assertions.assertEquals(1, watcher.received.size());
+    }
+}
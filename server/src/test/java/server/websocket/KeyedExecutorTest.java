@@ -0,0 +1,89 @@
+package server.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class KeyedExecutorTest {
+
+    private final KeyedExecutor<Integer> executor = new KeyedExecutor<>();
+
+    @AfterEach
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    public void tasksWithTheSameKeyRunInOrder() throws Exception {
+        var order = Collections.synchronizedList(new ArrayList<Integer>());
+        var done = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < 100; i++) {
+            int task = i;
+            done.add(executor.submit(1, () -> order.add(task)));
+        }
+        CompletableFuture.allOf(done.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+        var expected = new ArrayList<Integer>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(i);
+        }
+        Assertions.assertEquals(expected, order);
+    }
+
+    @Test
+    public void tasksWithOtherKeysAreNotHeldUp() throws Exception {
+        // Block the first key until a task on the second key has run
+        var release = new CountDownLatch(1);
+        var blocked = executor.submit(1, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.submit(2, release::countDown).get(5, TimeUnit.SECONDS);
+        blocked.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void failedTaskDoesNotStopItsQueue() throws Exception {
+        var failed = executor.submit(1, () -> {
+            throw new IllegalStateException("failed");
+        });
+        var ran = new boolean[1];
+        executor.submit(1, () -> ran[0] = true).get(5, TimeUnit.SECONDS);
+
+        Assertions.assertTrue(failed.isCompletedExceptionally());
+        Assertions.assertTrue(ran[0]);
+    }
+
+    @Test
+    public void closeFinishesQueuedTasks() {
+        var ran = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 10; i++) {
+            int task = i;
+            executor.submit(1, () -> {
+                sleep();
+                ran.add(task);
+            });
+        }
+        executor.close();
+
+        Assertions.assertEquals(10, ran.size());
+        Assertions.assertTrue(executor.submit(1, () -> { }).isCompletedExceptionally());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package service;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
 import dataaccess.*;
 import model.GameData;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import service.creategame.CreateGameRequest;
+import service.exception.AlreadyTakenException;
 import service.joingame.JoinGameRequest;
 import service.listgames.ListGamesRequest;
 import service.listgames.ListGamesResult;
 import service.register.RegisterRequest;
 import service.register.RegisterResult;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class GameServiceTest {
     UserDataAccess userDataAccess;
     AuthDataAccess authDataAccess;
@@ -163,6 +173,66 @@ public class GameServiceTest {
 
     }
 
+    @Test
+    public void joinGameConcurrently() throws Exception {
+        // Register users and create a game
+        var first = userService.register(new RegisterRequest("test1", "test2", "test3@xyz.com"));
+        var second = userService.register(new RegisterRequest("test4", "test5", "test6@xyz.com"));
+        gameService.createGame(new CreateGameRequest(first.authToken(), "test"));
+
+        // Both users try to take the white seat at once; exactly one of them gets it
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var joins = new ArrayList<Future<Boolean>>();
+            for (var res : List.of(first, second)) {
+                joins.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        gameService.joinGame(new JoinGameRequest(res.authToken(), "WHITE", 1));
+                        return true;
+                    } catch (AlreadyTakenException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            Assertions.assertNotEquals(joins.get(0).get(), joins.get(1).get());
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertNotNull(gameService.getGame(1).whiteUsername());
+    }
+
+    @Test
+    public void joinAndLeaveStoreACopyOfTheGame() throws Exception {
+        var res = userService.register(new RegisterRequest("test1", "test2", "test3@xyz.com"));
+        gameService.createGame(new CreateGameRequest(res.authToken(), "test"));
+
+        // Readers of the old game keep their instance to themselves
+        var before = gameService.getGame(1).game();
+        gameService.joinGame(new JoinGameRequest(res.authToken(), "WHITE", 1));
+        var joined = gameService.getGame(1).game();
+        Assertions.assertNotSame(before, joined);
+        Assertions.assertEquals(before, joined);
+
+        gameService.removeUserFromGame(1, ChessGame.TeamColor.WHITE);
+        Assertions.assertNotSame(joined, gameService.getGame(1).game());
+        Assertions.assertNull(gameService.getGame(1).whiteUsername());
+    }
+
+    @Test
+    public void makeMoveLeavesReadGameUnchanged() throws Exception {
+        var res = userService.register(new RegisterRequest("test1", "test2", "test3@xyz.com"));
+        gameService.createGame(new CreateGameRequest(res.authToken(), "test"));
+        var before = gameService.getGame(1);
+
+        // The move is stored, but a game read earlier is not changed under its reader
+        gameService.makeMove(1, new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        Assertions.assertEquals(new ChessGame(), before.game());
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, gameService.getGame(1).game().getTeamTurn());
+    }
+
     @Test
     public void listGamesInvalid() {
         RegisterResult res = null;
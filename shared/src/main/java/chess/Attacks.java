@@ -0,0 +1,196 @@
+package chess;
+
+/**
+ * Lookup tables of the squares each piece attacks, built once when the class is loaded.
+ * <p>
+ * Knights, kings and pawns attack a fixed set of squares, so their attacks are stored per
+ * square. Rooks and bishops stop at the first occupied square in each direction, so their
+ * attacks depend on the pieces on their relevant squares (their rays, minus the board edge).
+ * {@link Long#compress} gathers those occupancy bits into a dense index (the PEXT
+ * instruction on CPUs that have it), which selects a precomputed attack set for that
+ * exact arrangement of blockers.
+ */
+public final class Attacks {
+
+    // Row and column offsets each piece can move by
+    static final int[][] KNIGHT_STEPS = {{2, -1}, {-2, 1}, {2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, -2}, {-1, 2}};
+    static final int[][] KING_STEPS = {{1, -1}, {-1, 1}, {1, 1}, {-1, -1}, {0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+    static final int[][] ROOK_DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+    static final int[][] BISHOP_DIRECTIONS = {{1, -1}, {-1, 1}, {1, 1}, {-1, -1}};
+
+    // Squares attacked from each square
+    static final long[] KNIGHT = new long[64];
+    static final long[] KING = new long[64];
+    // Squares attacked by a pawn, indexed by TeamColor ordinal, then square
+    static final long[][] PAWN = new long[2][64];
+
+    // Squares strictly between two squares on a shared row, column or diagonal, and the
+    // whole line through them; both are empty for squares that do not share a line
+    static final long[][] BETWEEN = new long[64][64];
+    static final long[][] LINE = new long[64][64];
+
+    // Relevant occupancy of each square, and where its attack sets start in the table
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    private static final long BUILD_NANOS;
+
+    static {
+        long start = System.nanoTime();
+
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT[sq] = stepTargets(sq, KNIGHT_STEPS);
+            KING[sq] = stepTargets(sq, KING_STEPS);
+            PAWN[0][sq] = stepTargets(sq, new int[][]{{1, -1}, {1, 1}});
+            PAWN[1][sq] = stepTargets(sq, new int[][]{{-1, -1}, {-1, 1}});
+        }
+
+        for (int from = 0; from < 64; from++) {
+            for (var directions : new int[][][]{ROOK_DIRECTIONS, BISHOP_DIRECTIONS}) {
+                for (var direction : directions) {
+                    long fullLine = slidingTargets(from, new int[][]{direction}, 0)
+                            | slidingTargets(from, new int[][]{{-direction[0], -direction[1]}}, 0)
+                            | (1L << from);
+                    long between = 0;
+                    int r = (from >>> 3) + direction[0];
+                    int c = (from & 7) + direction[1];
+                    while (onBoard(r, c)) {
+                        int to = r * 8 + c;
+                        BETWEEN[from][to] = between;
+                        LINE[from][to] = fullLine;
+                        between |= 1L << to;
+                        r += direction[0];
+                        c += direction[1];
+                    }
+                }
+            }
+        }
+
+        ROOK_TABLE = buildSlidingTable(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_OFFSETS);
+        BISHOP_TABLE = buildSlidingTable(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_OFFSETS);
+
+        BUILD_NANOS = System.nanoTime() - start;
+    }
+
+    private Attacks() {
+    }
+
+    /**
+     * @return squares a rook on sq attacks, given the occupied squares of the board
+     */
+    static long rook(int sq, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[sq] + (int) Long.compress(occupied, ROOK_MASKS[sq])];
+    }
+
+    /**
+     * @return squares a bishop on sq attacks, given the occupied squares of the board
+     */
+    static long bishop(int sq, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[sq] + (int) Long.compress(occupied, BISHOP_MASKS[sq])];
+    }
+
+    /**
+     * @return squares a queen on sq attacks, given the occupied squares of the board
+     */
+    static long queen(int sq, long occupied) {
+        return rook(sq, occupied) | bishop(sq, occupied);
+    }
+
+    /**
+     * Approximates the memory the tables take up, counting only their contents
+     *
+     * @return size of the tables in bytes
+     */
+    public static long tableBytes() {
+        long longs = KNIGHT.length + KING.length + 2L * 64 + 2L * 64 * 64
+                + ROOK_MASKS.length + ROOK_TABLE.length + BISHOP_MASKS.length + BISHOP_TABLE.length;
+        long ints = ROOK_OFFSETS.length + BISHOP_OFFSETS.length;
+        return longs * Long.BYTES + ints * Integer.BYTES;
+    }
+
+    /**
+     * @return time it took to build the tables when the class was loaded, in nanoseconds
+     */
+    public static long buildNanos() {
+        return BUILD_NANOS;
+    }
+
+    /**
+     * @return a one-line description of the tables' size and build time, for startup logs
+     */
+    public static String summary() {
+        return String.format("Attack tables: %,.1f KiB built in %,.1f ms", tableBytes() / 1024.0, BUILD_NANOS / 1e6);
+    }
+
+    /**
+     * Fills in the relevant occupancy mask and table offset of every square, and computes
+     * the attack set of every arrangement of blockers on those relevant squares
+     */
+    private static long[] buildSlidingTable(int[][] directions, long[] masks, int[] offsets) {
+        int size = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            // A piece on the last square of a ray does not block anything behind it
+            long mask = 0;
+            for (var direction : directions) {
+                int r = (sq >>> 3) + direction[0];
+                int c = (sq & 7) + direction[1];
+                while (onBoard(r + direction[0], c + direction[1])) {
+                    mask |= 1L << (r * 8 + c);
+                    r += direction[0];
+                    c += direction[1];
+                }
+            }
+            masks[sq] = mask;
+            offsets[sq] = size;
+            size += 1 << Long.bitCount(mask);
+        }
+
+        long[] table = new long[size];
+        for (int sq = 0; sq < 64; sq++) {
+            int subsets = 1 << Long.bitCount(masks[sq]);
+            for (int index = 0; index < subsets; index++) {
+                long occupied = Long.expand(index, masks[sq]);
+                table[offsets[sq] + index] = slidingTargets(sq, directions, occupied);
+            }
+        }
+        return table;
+    }
+
+    private static long stepTargets(int sq, int[][] steps) {
+        long targets = 0;
+        for (var step : steps) {
+            int r = (sq >>> 3) + step[0];
+            int c = (sq & 7) + step[1];
+            if (onBoard(r, c)) {
+                targets |= 1L << (r * 8 + c);
+            }
+        }
+        return targets;
+    }
+
+    private static long slidingTargets(int sq, int[][] directions, long occupied) {
+        long targets = 0;
+        for (var direction : directions) {
+            int r = (sq >>> 3) + direction[0];
+            int c = (sq & 7) + direction[1];
+            while (onBoard(r, c)) {
+                long bit = 1L << (r * 8 + c);
+                targets |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return targets;
+    }
+
+    private static boolean onBoard(int row, int col) {
+        return row >= 0 && row < 8 && col >= 0 && col < 8;
+    }
+}
@@ -1,17 +1,53 @@
 package chess;
 
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
+ * The board is stored as twelve 64-bit bitboards, one per (color, piece type) pair, plus an
+ * occupancy mask per color and one for the whole board. Square (row, col) maps to bit
+ * (row - 1) * 8 + (col - 1), so a1 is bit 0 and h8 is bit 63. A Zobrist key of the
+ * placement is updated along with the bitboards, and serves as the board's hash code.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoard.GsonAdapter.class)
 public class ChessBoard {
 
-    ChessPiece[][] board = new ChessPiece[8][8];
+    // One bitboard per piece, indexed by pieceIndex(color, type)
+    final long[] pieces = new long[12];
+    // One occupancy mask per team, indexed by TeamColor.ordinal()
+    final long[] colorOccupancy = new long[2];
+    long occupied;
+    // Zobrist key of the pieces on the board, kept up to date by setSquare and removePiece
+    long zobristKey;
+
+    // Squares of the same color as h1, which is a light square
+    private static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    // Canonical piece instances handed out by getPiece, indexed by pieceIndex(color, type)
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    // FEN letter of each piece, indexed by pieceIndex(color, type); white pieces are upper case
+    private static final String FEN_PIECES = "KQBNRPkqbnrp";
+
+    static {
+        for (var color : ChessGame.TeamColor.values()) {
+            for (var type : ChessPiece.PieceType.values()) {
+                PIECES[pieceIndex(color, type)] = ChessPiece.of(color, type);
+            }
+        }
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -19,18 +55,30 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        return Arrays.equals(pieces, that.pieces);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Long.hashCode(zobristKey);
     }
 
     public ChessBoard() {
 
     }
 
+    /**
+     * Creates a copy of an existing board
+     *
+     * @param other the board to copy
+     */
+    ChessBoard(ChessBoard other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colorOccupancy, 0, colorOccupancy, 0, colorOccupancy.length);
+        occupied = other.occupied;
+        zobristKey = other.zobristKey;
+    }
+
     /**
      * Move a chess piece on the chessboard, assuming the move is valid
      *
@@ -39,17 +87,23 @@ public class ChessBoard {
      * @param promotionPiece the type of piece we are promoting to (null except for pawns)
      */
     public void movePiece(ChessPosition startPosition, ChessPosition endPosition, ChessPiece.PieceType promotionPiece) {
-        ChessPiece piece = this.getPiece(startPosition);
+        int from = square(startPosition);
+        int to = square(endPosition);
+        int moved = pieceIndexAt(from);
 
-        // Add a new piece to the end position, replacing with the promotion piece if applicable
+        // Remove the piece from the start position, and anything it captures at the end position
+        clearSquare(from);
+        clearSquare(to);
+        if (moved < 0) {
+            return;
+        }
+
+        // Add the piece to the end position, replacing it with the promotion piece if applicable
         if (promotionPiece != null) {
-            this.addPiece(endPosition, new ChessPiece(piece.getTeamColor(), promotionPiece));
+            setSquare(to, colorIndex(moved) * 6 + promotionPiece.ordinal());
         } else {
-            this.addPiece(endPosition, piece);
+            setSquare(to, moved);
         }
-
-        // Remove the piece from the start position
-        board[startPosition.getRow()-1][startPosition.getColumn()-1] = null;
     }
 
     /**
@@ -59,7 +113,11 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        board[position.getRow()-1][position.getColumn()-1] = piece;
+        int sq = square(position);
+        clearSquare(sq);
+        if (piece != null) {
+            setSquare(sq, pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+        }
     }
 
     /**
@@ -70,7 +128,8 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return board[position.getRow()-1][position.getColumn()-1];
+        int index = pieceIndexAt(square(position));
+        return index < 0 ? null : PIECES[index];
     }
 
     /**
@@ -88,26 +147,367 @@ public class ChessBoard {
                 ChessPiece.PieceType.KNIGHT,
                 ChessPiece.PieceType.ROOK};
 
-        // Add white and black pieces to the board
+        // Start from an empty board
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colorOccupancy, 0L);
+        occupied = 0L;
+        zobristKey = 0L;
+
+        // Add white and black pieces to the board in column i + 1
         for (int i = 0; i < 8; i++) {
-            // Define white piece positions, and add the pieces in column i + 1
-            var whitePos1 = new ChessPosition(1, i + 1);
-            var whitePos2 = new ChessPosition(2, i + 1);
-            addPiece(whitePos1, new ChessPiece(ChessGame.TeamColor.WHITE, basePieces[i]));
-            addPiece(whitePos2, new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-
-            // Define black piece positions, and add the pieces in column i + 1
-            var blackPos1 = new ChessPosition(8, i + 1);
-            var blackPos2 = new ChessPosition(7, i + 1);
-            addPiece(blackPos1, new ChessPiece(ChessGame.TeamColor.BLACK, basePieces[i]));
-            addPiece(blackPos2, new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        }
-
-        // Ensure the remaining pieces on the board are null
-        for (int i = 3; i < 7; i++) {
-            for (int j = 1; j <= 8; j++) {
-                this.board[i-1][j-1] = null;
+            setSquare(i, pieceIndex(ChessGame.TeamColor.WHITE, basePieces[i]));
+            setSquare(8 + i, pieceIndex(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            setSquare(56 + i, pieceIndex(ChessGame.TeamColor.BLACK, basePieces[i]));
+            setSquare(48 + i, pieceIndex(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        }
+    }
+
+    /**
+     * Builds a board from the piece placement field of a FEN string, such as
+     * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR". Anything after the first space is
+     * ignored, so a full FEN string is accepted as well.
+     *
+     * @param fen the piece placement, optionally followed by the other FEN fields
+     * @return a new board with the pieces placed
+     * @throws IllegalArgumentException if the placement does not describe exactly 8 rows of 8 squares
+     */
+    public static ChessBoard fromFen(String fen) {
+        var board = new ChessBoard();
+        int end = fen.indexOf(' ');
+        if (end < 0) {
+            end = fen.length();
+        }
+
+        // FEN lists the rows from 8 down to 1, each from column a to h
+        int row = 7;
+        int column = 0;
+        for (int i = 0; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (column != 8 || row == 0) {
+                    throw new IllegalArgumentException("malformed piece placement: " + fen.substring(0, end));
+                }
+                row--;
+                column = 0;
+            } else if (c >= '1' && c <= '8') {
+                column += c - '0';
+            } else {
+                int pieceIndex = FEN_PIECES.indexOf(c);
+                if (pieceIndex < 0) {
+                    throw new IllegalArgumentException("unknown piece '" + c + "' in " + fen.substring(0, end));
+                }
+                if (column < 8) {
+                    board.setSquare(row * 8 + column, pieceIndex);
+                }
+                column++;
+            }
+            if (column > 8) {
+                throw new IllegalArgumentException("too many squares in a row: " + fen.substring(0, end));
+            }
+        }
+        if (row != 0 || column != 8) {
+            throw new IllegalArgumentException("malformed piece placement: " + fen.substring(0, end));
+        }
+        return board;
+    }
+
+    /**
+     * Writes the board as the piece placement field of a FEN string
+     *
+     * @return the placement, such as "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"
+     */
+    public String toFen() {
+        return appendFen(new StringBuilder(72)).toString();
+    }
+
+    /**
+     * Appends the piece placement field of a FEN string to a builder
+     */
+    StringBuilder appendFen(StringBuilder builder) {
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                int pieceIndex = pieceIndexAt(row * 8 + column);
+                if (pieceIndex < 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    builder.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                builder.append(FEN_PIECES.charAt(pieceIndex));
+            }
+            if (empty > 0) {
+                builder.append((char) ('0' + empty));
+            }
+            if (row > 0) {
+                builder.append('/');
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * @return bitboard of all pieces of the given color and type
+     */
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces[pieceIndex(color, type)];
+    }
+
+    /**
+     * @return bitboard of all squares occupied by the given team
+     */
+    long occupancy(ChessGame.TeamColor color) {
+        return colorOccupancy[color.ordinal()];
+    }
+
+    /**
+     * Determines whether neither team has enough material left to ever checkmate: kings
+     * alone, a single knight or bishop besides the kings, or only bishops that all stand
+     * on squares of one color. The bitboards are already kept up to date on every move,
+     * so counting pieces is a population count rather than a scan of the board.
+     *
+     * @return True if no sequence of moves can lead to checkmate
+     */
+    boolean hasInsufficientMaterial() {
+        long majorsAndPawns = 0;
+        for (var color : ChessGame.TeamColor.values()) {
+            majorsAndPawns |= pieces(color, ChessPiece.PieceType.QUEEN) | pieces(color, ChessPiece.PieceType.ROOK)
+                    | pieces(color, ChessPiece.PieceType.PAWN);
+        }
+        if (majorsAndPawns != 0) {
+            return false;
+        }
+
+        long knights = pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT)
+                | pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
+        long bishops = pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP)
+                | pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
+        if (Long.bitCount(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    /**
+     * @return square index of the given team's king, or 64 if the team has no king
+     */
+    int kingSquare(ChessGame.TeamColor color) {
+        return Long.numberOfTrailingZeros(pieces[pieceIndex(color, ChessPiece.PieceType.KING)]);
+    }
+
+    /**
+     * Determines whether any piece of a team attacks a square. Rather than generating the
+     * moves of every enemy piece, this looks up the squares each kind of piece would attack
+     * from the square itself, and checks whether an enemy piece of that kind stands on one.
+     *
+     * @param sq      square index, 0 (a1) to 63 (h8)
+     * @param byColor the attacking team
+     * @return True if a piece of the attacking team could capture on the square
+     */
+    boolean isSquareAttacked(int sq, ChessGame.TeamColor byColor) {
+        return attackersOf(sq, byColor, occupied) != 0;
+    }
+
+    /**
+     * Determines whether any piece of a team would attack a square if the board were
+     * occupied as given, which lets callers ask about a move without making it
+     *
+     * @param sq        square index, 0 (a1) to 63 (h8)
+     * @param byColor   the attacking team
+     * @param occupancy bitboard of the squares to treat as occupied
+     * @return True if a piece of the attacking team could capture on the square
+     */
+    boolean isSquareAttacked(int sq, ChessGame.TeamColor byColor, long occupancy) {
+        return attackersOf(sq, byColor, occupancy) != 0;
+    }
+
+    /**
+     * Finds every piece of a team that attacks a square
+     *
+     * @param sq      square index, 0 (a1) to 63 (h8)
+     * @param byColor the attacking team
+     * @return bitboard of the attacking pieces
+     */
+    long attackersOf(int sq, ChessGame.TeamColor byColor) {
+        return attackersOf(sq, byColor, occupied);
+    }
+
+    /**
+     * Finds every piece of a team that would attack a square if the board were occupied as
+     * given. Sliders are blocked only by the given squares, and pieces standing on squares
+     * left out of it count as captured.
+     *
+     * @param sq        square index, 0 (a1) to 63 (h8)
+     * @param byColor   the attacking team
+     * @param occupancy bitboard of the squares to treat as occupied
+     * @return bitboard of the attacking pieces
+     */
+    long attackersOf(int sq, ChessGame.TeamColor byColor, long occupancy) {
+        int base = byColor.ordinal() * 6;
+
+        // An attacking pawn stands where a pawn of the other team on this square would attack
+        long attackers = (Attacks.KNIGHT[sq] & pieces[base + ChessPiece.PieceType.KNIGHT.ordinal()])
+                | (Attacks.KING[sq] & pieces[base + ChessPiece.PieceType.KING.ordinal()])
+                | (Attacks.PAWN[1 - byColor.ordinal()][sq] & pieces[base + ChessPiece.PieceType.PAWN.ordinal()]);
+
+        long queens = pieces[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        long straightSliders = queens | pieces[base + ChessPiece.PieceType.ROOK.ordinal()];
+        long diagonalSliders = queens | pieces[base + ChessPiece.PieceType.BISHOP.ordinal()];
+        return (attackers | (Attacks.rook(sq, occupancy) & straightSliders)
+                | (Attacks.bishop(sq, occupancy) & diagonalSliders)) & occupancy;
+    }
+
+    /**
+     * Gets the index of the piece on a square
+     *
+     * @param sq square index, 0 (a1) to 63 (h8)
+     * @return pieceIndex of the piece on the square, or -1 if the square is empty
+     */
+    int pieceIndexAt(int sq) {
+        long bit = 1L << sq;
+        if ((occupied & bit) == 0) {
+            return -1;
+        }
+        int first = (colorOccupancy[0] & bit) != 0 ? 0 : 6;
+        for (int i = first; i < first + 6; i++) {
+            if ((pieces[i] & bit) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Zobrist key of the piece placement, not including the side to move
+     */
+    long zobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Places a piece on an empty square
+     */
+    void setSquare(int sq, int pieceIndex) {
+        long bit = 1L << sq;
+        pieces[pieceIndex] |= bit;
+        colorOccupancy[colorIndex(pieceIndex)] |= bit;
+        occupied |= bit;
+        zobristKey ^= Zobrist.PIECE_SQUARE[pieceIndex][sq];
+    }
+
+    /**
+     * Removes a piece known to be on a square
+     */
+    void removePiece(int sq, int pieceIndex) {
+        long keep = ~(1L << sq);
+        pieces[pieceIndex] &= keep;
+        colorOccupancy[colorIndex(pieceIndex)] &= keep;
+        occupied &= keep;
+        zobristKey ^= Zobrist.PIECE_SQUARE[pieceIndex][sq];
+    }
+
+    /**
+     * Removes whatever piece is on a square
+     */
+    void clearSquare(int sq) {
+        int pieceIndex = pieceIndexAt(sq);
+        if (pieceIndex >= 0) {
+            removePiece(sq, pieceIndex);
+        }
+    }
+
+    static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + position.getColumn() - 1;
+    }
+
+    static ChessPosition toPosition(int sq) {
+        return ChessPosition.ofSquare(sq);
+    }
+
+    static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    static int colorIndex(int pieceIndex) {
+        return pieceIndex / 6;
+    }
+
+    static ChessPiece pieceFromIndex(int pieceIndex) {
+        return PIECES[pieceIndex];
+    }
+
+    /**
+     * Writes a board as the piece placement field of a FEN string. Also reads the former
+     * {"board": [[...]]} ChessPiece[8][8] layout, so games already stored in the database
+     * keep loading.
+     */
+    static class GsonAdapter extends TypeAdapter<ChessBoard> {
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            if (board == null) {
+                out.nullValue();
+                return;
+            }
+            out.value(board.toFen());
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (in.peek() == JsonToken.STRING) {
+                try {
+                    return fromFen(in.nextString());
+                } catch (IllegalArgumentException e) {
+                    throw new JsonSyntaxException(e.getMessage(), e);
+                }
+            }
+            var board = new ChessBoard();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals("board") || in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginArray();
+                for (int row = 0; in.hasNext(); row++) {
+                    in.beginArray();
+                    for (int col = 0; in.hasNext(); col++) {
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            board.setSquare(row * 8 + col, readPieceIndex(in));
+                        }
+                    }
+                    in.endArray();
+                }
+                in.endArray();
+            }
+            in.endObject();
+            return board;
+        }
+
+        private static int readPieceIndex(JsonReader in) throws IOException {
+            ChessGame.TeamColor color = null;
+            ChessPiece.PieceType type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = ChessGame.TeamColor.valueOf(in.nextString());
+                    case "type" -> type = ChessPiece.PieceType.valueOf(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (color == null || type == null) {
+                throw new IOException("chess piece is missing its color or type");
             }
+            return pieceIndex(color, type);
         }
     }
 }
@@ -1,5 +1,15 @@
 package chess;
 
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Objects;
@@ -10,10 +20,39 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessGame.GsonAdapter.class)
 public class ChessGame {
 
+    // FEN letter of each castling right, in the order of the GameState castling bits
+    private static final String CASTLING_LETTERS = "KQkq";
+
+    // Format version written by toBytes, and the size of everything before the position history
+    private static final byte BINARY_VERSION = 3;
+    private static final int BINARY_HEADER_BYTES = 1 + 32 + 1 + 4 + 4;
+
     private TeamColor currTeam = TeamColor.WHITE;
     private ChessBoard currBoard;
+    // Castling rights, en passant square and move counters, packed as described in GameState
+    private int state = GameState.INITIAL;
+
+    // Zobrist keys of the positions before each move, oldest first. Only the last
+    // halfmove-clock entries can repeat, since captures and pawn moves are irreversible.
+    private long[] positionHistory = new long[0];
+    private int historySize;
+
+    // Every move made since the game was set up, packed as in Move without any flags
+    private short[] moveLog = new short[0];
+    private int moveCount;
+    // Zobrist key of the position before the first logged move, if there is one
+    private long startKey;
+
+    // Scratch space for move generation, reused so generating moves does not allocate. Kept
+    // per thread rather than per game, so threads reading the same game do not share it
+    private static final ThreadLocal<MoveList> MOVE_BUFFER = ThreadLocal.withInitial(MoveList::new);
+
+    // Status of the last position it was computed for, identified by that position's Zobrist key
+    private transient GameStatus cachedStatus;
+    private transient long cachedStatusKey;
 
     public ChessGame() {
         // Set up an immediately playable board
@@ -27,12 +66,41 @@ public class ChessGame {
             return false;
         }
         ChessGame chessGame = (ChessGame) o;
-        return currTeam == chessGame.currTeam && Objects.equals(currBoard, chessGame.currBoard);
+        return currTeam == chessGame.currTeam
+                && (state & GameState.POSITION) == (chessGame.state & GameState.POSITION)
+                && Objects.equals(currBoard, chessGame.currBoard);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(currTeam, currBoard);
+        return Long.hashCode(getZobristKey());
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key of the position: the piece placement, the team to move,
+     * the castling rights and the en passant square. Equal positions always have equal keys,
+     * and different positions almost never do, so the key can stand in for the position in
+     * caches and indexes.
+     *
+     * @return Zobrist key of the current position
+     */
+    public long getZobristKey() {
+        long key = currBoard == null ? 0L : currBoard.zobristKey();
+        if (currTeam == TeamColor.BLACK) {
+            key ^= Zobrist.BLACK_TO_MOVE;
+        }
+        int enPassant = GameState.enPassant(state);
+        if (enPassant != 0) {
+            key ^= Zobrist.EN_PASSANT[enPassant];
+        }
+        return key ^ Zobrist.CASTLING[GameState.castling(state)];
+    }
+
+    /**
+     * @return castling rights, en passant square and move counters, packed as described in GameState
+     */
+    int state() {
+        return state;
     }
 
     /**
@@ -68,38 +136,38 @@ public class ChessGame {
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
 
-        HashSet<ChessMove> allValidMoves = new HashSet<>();
-
         // Return null if there is no piece at the startPosition
-        ChessPiece piece = currBoard.getPiece(startPosition);
-        if (piece == null) {
+        int from = ChessBoard.square(startPosition);
+        int pieceIndex = currBoard.pieceIndexAt(from);
+        if (pieceIndex < 0) {
             return null;
         }
 
-        // Create a new copy of the board for each move to test whether the move puts the king in check
-        var possMoves = piece.pieceMoves(currBoard, startPosition);
-        for (ChessMove move : possMoves) {
-            var boardCopy = new ChessBoard();
-
-            // Make a copy of the board
-            for (int row = 1; row <= 8; row++) {
-                for (int col = 1; col <= 8; col++) {
-                    var piecePos = new ChessPosition(row, col);
-                    boardCopy.addPiece(piecePos, currBoard.getPiece(piecePos));
-                }
-            }
-
-            // Simulate moving the piece and check our team's king goes into check; if not, consider the move valid
-            boardCopy.movePiece(move.getStartPosition(), move.getEndPosition(), move.getPromotionPiece());
-            var inCheck = isInCheckBoard(piece.getTeamColor(), boardCopy);
-            if (!inCheck) {
-                allValidMoves.add(move);
-            }
+        // Generate packed legal moves, and only then build ChessMoves for them
+        var moveBuffer = MOVE_BUFFER.get();
+        moveBuffer.clear();
+        var team = teamOf(pieceIndex);
+        MoveGenerator.generateLegal(currBoard, team, stateFor(team), 1L << from, moveBuffer);
+        HashSet<ChessMove> allValidMoves = new HashSet<>();
+        for (int i = 0; i < moveBuffer.size(); i++) {
+            allValidMoves.add(Move.toChessMove(moveBuffer.get(i)));
         }
 
         return allValidMoves;
     }
 
+    private static TeamColor teamOf(int pieceIndex) {
+        return ChessBoard.colorIndex(pieceIndex) == 0 ? TeamColor.WHITE : TeamColor.BLACK;
+    }
+
+    /**
+     * @return the game state as it applies to a team's moves; only the team to move may
+     * capture en passant
+     */
+    private int stateFor(TeamColor teamColor) {
+        return teamColor == currTeam ? state : GameState.withEnPassant(state, 0);
+    }
+
     /**
      * Makes a move in a chess game
      *
@@ -120,9 +188,13 @@ public class ChessGame {
             throw new InvalidMoveException();
         }
         // Check that the move is valid in terms of chess rules
+        int wanted = Move.encode(move);
         boolean isValid = false;
-        for (var possMove : this.validMoves(startPos)) {
-            if (move.equals(possMove)) {
+        var moveBuffer = MOVE_BUFFER.get();
+        moveBuffer.clear();
+        MoveGenerator.generateLegal(currBoard, currTeam, state, 1L << ChessBoard.square(startPos), moveBuffer);
+        for (int i = 0; i < moveBuffer.size(); i++) {
+            if ((moveBuffer.get(i) & Move.SQUARES_AND_PROMOTION) == wanted) {
                 isValid = true;
                 break;
             }
@@ -131,67 +203,250 @@ public class ChessGame {
             throw new InvalidMoveException();
         }
 
-        // If so, move the piece
-        currBoard.movePiece(move.getStartPosition(), move.getEndPosition(), move.getPromotionPiece());
+        // If so, move the piece and change the current team
+        makeMoveUnchecked(move);
 
-        // Change the current team
-        if (currTeam == TeamColor.WHITE) {
-            currTeam = TeamColor.BLACK;
-        } else {
-            currTeam = TeamColor.WHITE;
+        // Positions before a capture or pawn move can never come back, so stop keeping them
+        if (GameState.halfmoveClock(state) == 0) {
+            historySize = 0;
         }
     }
 
     /**
-     * Determines the position of the king belonging to the specified team
-     * @param teamColor king color
-     * @return position of the king
+     * Everything needed to take back a move made with makeMoveUnchecked
+     *
+     * @param move          the move that was made, including any promotion
+     * @param movedPiece    the piece that moved, as it was before any promotion
+     * @param capturedPiece the piece on the end position before the move, or null; en passant
+     *                      captures leave this null, since the captured pawn is elsewhere
+     * @param previousTurn  the team whose turn it was before the move
+     * @param previousState castling rights, en passant square and move counters before the move
      */
-    public ChessPosition getKingPos(TeamColor teamColor, ChessBoard board) {
-        int currRow = 1;
-        for (var row : board.board ) {
-            int currCol = 1;
-            for (ChessPiece piece : row) {
-                if (piece != null && piece.getTeamColor() == teamColor && piece.getPieceType() == ChessPiece.PieceType.KING) {
-                    return new ChessPosition(currRow, currCol);
-                }
-                currCol += 1;
+    public record MoveUndo(ChessMove move, ChessPiece movedPiece, ChessPiece capturedPiece, TeamColor previousTurn,
+                           int previousState) {
+    }
+
+    /**
+     * Makes a move in place without checking it against the rules of chess, so it can
+     * later be taken back with unmakeMove
+     *
+     * @param move chess move to perform; its start position must hold a piece
+     * @return the record needed to undo the move
+     */
+    public MoveUndo makeMoveUnchecked(ChessMove move) {
+        var movedPiece = currBoard.getPiece(move.getStartPosition());
+        var capturedPiece = currBoard.getPiece(move.getEndPosition());
+        var undo = new MoveUndo(move, movedPiece, capturedPiece, currTeam, state);
+        long key = getZobristKey();
+        pushHistory(key);
+        if (moveCount == 0) {
+            startKey = key;
+        }
+        if (moveCount == moveLog.length) {
+            moveLog = Arrays.copyOf(moveLog, Math.max(32, moveCount * 2));
+        }
+        moveLog[moveCount++] = (short) Move.encode(move);
+
+        int from = ChessBoard.square(move.getStartPosition());
+        int to = ChessBoard.square(move.getEndPosition());
+        int enPassant = 0;
+        if (isCastle(movedPiece, from, to)) {
+            // The rook jumps over the king to the square it passed
+            currBoard.movePiece(ChessBoard.toPosition(castlingRookSquare(from, to)),
+                    ChessBoard.toPosition((from + to) / 2), null);
+        } else if (isEnPassant(movedPiece, from, to, state)) {
+            // The captured pawn stands beside the start position, not on the end position
+            currBoard.clearSquare(enPassantVictimSquare(from, to));
+        } else if (movedPiece != null && movedPiece.getPieceType() == ChessPiece.PieceType.PAWN
+                && Math.abs(to - from) == 16) {
+            // Only remember the square the pawn skipped if an enemy pawn could capture onto it
+            int skipped = (from + to) / 2;
+            var enemyColor = movedPiece.getTeamColor() == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+            if ((Attacks.PAWN[movedPiece.getTeamColor().ordinal()][skipped]
+                    & currBoard.pieces(enemyColor, ChessPiece.PieceType.PAWN)) != 0) {
+                enPassant = skipped;
             }
-            currRow += 1;
         }
-        return null;
+
+        boolean irreversible = capturedPiece != null
+                || (movedPiece != null && movedPiece.getPieceType() == ChessPiece.PieceType.PAWN);
+        int halfmoveClock = irreversible ? 0 : GameState.halfmoveClock(state) + 1;
+
+        currBoard.movePiece(move.getStartPosition(), move.getEndPosition(), move.getPromotionPiece());
+        state = GameState.withEnPassant(GameState.afterMoveBetween(state, from, to), enPassant);
+        state = GameState.withHalfmoveClock(state, halfmoveClock);
+        if (currTeam == TeamColor.BLACK) {
+            state = GameState.withFullmoveNumber(state, GameState.fullmoveNumber(state) + 1);
+        }
+        currTeam = currTeam == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        return undo;
+    }
+
+    /**
+     * Takes back a move made with makeMoveUnchecked. Moves must be unmade in the
+     * reverse order they were made.
+     *
+     * @param undo the record returned when the move was made
+     */
+    public void unmakeMove(MoveUndo undo) {
+        var move = undo.move();
+        var movedPiece = undo.movedPiece();
+        currBoard.addPiece(move.getEndPosition(), undo.capturedPiece());
+        currBoard.addPiece(move.getStartPosition(), movedPiece);
+
+        int from = ChessBoard.square(move.getStartPosition());
+        int to = ChessBoard.square(move.getEndPosition());
+        if (isCastle(movedPiece, from, to)) {
+            currBoard.addPiece(ChessBoard.toPosition((from + to) / 2), null);
+            currBoard.addPiece(ChessBoard.toPosition(castlingRookSquare(from, to)),
+                    ChessPiece.of(movedPiece.getTeamColor(), ChessPiece.PieceType.ROOK));
+        } else if (isEnPassant(movedPiece, from, to, undo.previousState())) {
+            var enemyColor = movedPiece.getTeamColor() == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+            currBoard.addPiece(ChessBoard.toPosition(enPassantVictimSquare(from, to)),
+                    ChessPiece.of(enemyColor, ChessPiece.PieceType.PAWN));
+        }
+
+        state = undo.previousState();
+        currTeam = undo.previousTurn();
+        historySize--;
+        moveCount--;
     }
 
-    public boolean canCapture(Collection<ChessMove> possMoves, ChessPosition kingPos) {
-        for (var move : possMoves) {
-            if (move.getEndPosition().equals(kingPos)) {
+    /**
+     * @return number of moves made since the game was set up, by either team
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Gets a move made earlier in the game
+     *
+     * @param ply which move, counting from 0 for the first move made since the game was set up
+     * @return the move
+     */
+    public ChessMove getMove(int ply) {
+        Objects.checkIndex(ply, moveCount);
+        return Move.toChessMove(moveLog[ply]);
+    }
+
+    /**
+     * Gets a 64-bit fingerprint of the position the game was set up in and its first moves.
+     * Games with equal fingerprints for the same number of moves almost always started from
+     * the same position and made the same moves, so storage can tell a game that carries on
+     * from a stored one apart from a replacement without reading the stored one back.
+     *
+     * @param plies how many of the moves to include, from 0 up to getMoveCount()
+     * @return fingerprint of the starting position and the first plies moves
+     */
+    public long getLogHash(int plies) {
+        Objects.checkFromToIndex(0, plies, moveCount);
+        // Before any move the game is still in its starting position
+        long hash = moveCount == 0 ? getZobristKey() : startKey;
+        for (int i = 0; i < plies; i++) {
+            hash = (hash ^ (moveLog[i] & 0xFFFF)) * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 32;
+        }
+        return hash;
+    }
+
+    private void pushHistory(long key) {
+        if (historySize == positionHistory.length) {
+            positionHistory = Arrays.copyOf(positionHistory, Math.max(16, historySize * 2));
+        }
+        positionHistory[historySize++] = key;
+    }
+
+    /**
+     * @return number of moves made since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return GameState.halfmoveClock(state);
+    }
+
+    /**
+     * Determines whether the current position has occurred at least three times with the
+     * same team to move. Only the keys of positions since the last capture or pawn move are
+     * compared, and only every other one, since the team to move alternates.
+     *
+     * @return True if the game may be drawn by threefold repetition
+     */
+    public boolean isThreefoldRepetition() {
+        long key = getZobristKey();
+        int oldest = Math.max(0, historySize - GameState.halfmoveClock(state));
+        int occurrences = 1;
+        for (int i = historySize - 2; i >= oldest; i -= 2) {
+            if (positionHistory[i] == key && ++occurrences == 3) {
                 return true;
             }
         }
-
         return false;
     }
 
+    /**
+     * Determines whether the game is drawn because neither team can checkmate with the
+     * pieces left, such as king against king, or king and knight against king
+     *
+     * @return True if the position is dead for lack of material
+     */
+    public boolean isInsufficientMaterial() {
+        return currBoard.hasInsufficientMaterial();
+    }
+
+    /**
+     * Determines whether fifty moves by each team have passed without a capture or pawn move
+     *
+     * @return True if the game may be drawn by the fifty-move rule
+     */
+    public boolean isFiftyMoveRule() {
+        return GameState.halfmoveClock(state) >= 100;
+    }
+
+    // A king moving two squares sideways is castling
+    private static boolean isCastle(ChessPiece movedPiece, int from, int to) {
+        return movedPiece != null && movedPiece.getPieceType() == ChessPiece.PieceType.KING
+                && Math.abs(to - from) == 2;
+    }
+
+    private static int castlingRookSquare(int from, int to) {
+        return to > from ? from + 3 : from - 4;
+    }
+
+    // The en passant square is always empty, so a pawn moving diagonally onto it captures en passant
+    private static boolean isEnPassant(ChessPiece movedPiece, int from, int to, int state) {
+        int enPassant = GameState.enPassant(state);
+        return enPassant != 0 && to == enPassant && (from & 7) != (to & 7)
+                && movedPiece != null && movedPiece.getPieceType() == ChessPiece.PieceType.PAWN;
+    }
+
+    private static int enPassantVictimSquare(int from, int to) {
+        return (from & ~7) | (to & 7);
+    }
+
+    /**
+     * Determines the position of the king belonging to the specified team
+     * @param teamColor king color
+     * @return position of the king
+     */
+    public ChessPosition getKingPos(TeamColor teamColor, ChessBoard board) {
+        int kingSq = board.kingSquare(teamColor);
+        return kingSq == 64 ? null : ChessBoard.toPosition(kingSq);
+    }
+
+    /**
+     * Determines if the given team's king is attacked on a given board
+     *
+     * @param teamColor which team to check for check
+     * @param board     the board to inspect
+     * @return True if the specified team has a king and it is attacked
+     */
     public boolean isInCheckBoard(TeamColor teamColor, ChessBoard board) {
-        ChessPosition kingPos = getKingPos(teamColor, board);
-
-        // Search all enemy pieces and see if they can capture the king
-        int currRow = 1;
-        for (var row : board.board ) {
-            int currCol = 1;
-            for (ChessPiece piece : row) {
-                if (piece != null && piece.getTeamColor() != teamColor) {
-                    var possMoves = piece.pieceMoves(board, new ChessPosition(currRow, currCol));
-                    if (canCapture(possMoves, kingPos)) {
-                        return true;
-                    }
-                }
-                currCol += 1;
-            }
-            currRow += 1;
+        int kingSq = board.kingSquare(teamColor);
+        if (kingSq == 64) {
+            return false;
         }
-
-        return false;
+        TeamColor enemyColor = teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        return board.isSquareAttacked(kingSq, enemyColor);
     }
 
     /**
@@ -211,22 +466,10 @@ public class ChessGame {
      * @return True if the specified team has a valid move
      */
     public boolean hasValidMoves(TeamColor teamColor) {
-        int currRow = 1;
-        for (var row : currBoard.board ) {
-            int currCol = 1;
-            for (ChessPiece piece : row) {
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    var possMoves = validMoves(new ChessPosition(currRow, currCol));
-                    if (!possMoves.isEmpty()) {
-                        return false;
-                    }
-                }
-                currCol += 1;
-            }
-            currRow += 1;
-        }
-
-        return true;
+        var moveBuffer = MOVE_BUFFER.get();
+        moveBuffer.clear();
+        MoveGenerator.generateLegal(currBoard, teamColor, stateFor(teamColor), -1L, moveBuffer);
+        return moveBuffer.size() == 0;
     }
 
     /**
@@ -236,14 +479,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        // Must be in check to be in stalemate
-        boolean inCheck = this.isInCheck(teamColor);
-        if (!inCheck) {
-            return false;
-        }
-
-        // Must have no valid moves to be in stalemate
-        return hasValidMoves(teamColor);
+        return getGameStatus().of(teamColor) == GameStatus.State.CHECKMATE;
     }
 
     /**
@@ -254,14 +490,32 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        // Must not be in check to be in stalemate
-        boolean inCheck = this.isInCheck(teamColor);
-        if (inCheck) {
-            return false;
+        return getGameStatus().of(teamColor) == GameStatus.State.STALEMATE;
+    }
+
+    /**
+     * Gets the check, checkmate and stalemate state of both teams. The status is computed
+     * once per position and reused until the board or the team to move changes.
+     *
+     * @return status of the current position
+     */
+    public GameStatus getGameStatus() {
+        long key = getZobristKey();
+        if (cachedStatus == null || cachedStatusKey != key) {
+            cachedStatus = new GameStatus(computeState(TeamColor.WHITE), computeState(TeamColor.BLACK));
+            cachedStatusKey = key;
         }
+        return cachedStatus;
+    }
+
+    private GameStatus.State computeState(TeamColor teamColor) {
+        boolean inCheck = isInCheck(teamColor);
 
-        // Must have no valid moves to be in stalemate
-        return hasValidMoves(teamColor);
+        // hasValidMoves is true when the team has no valid moves
+        if (hasValidMoves(teamColor)) {
+            return inCheck ? GameStatus.State.CHECKMATE : GameStatus.State.STALEMATE;
+        }
+        return inCheck ? GameStatus.State.CHECK : GameStatus.State.ONGOING;
     }
 
     /**
@@ -271,6 +525,10 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         currBoard = board;
+        // A board carries no history, so assume kings and rooks on their home squares have not moved
+        state = GameState.withFullmoveNumber(board == null ? 0 : GameState.fromBoard(board), 1);
+        historySize = 0;
+        moveCount = 0;
     }
 
     /**
@@ -281,4 +539,342 @@ public class ChessGame {
     public ChessBoard getBoard() {
         return currBoard;
     }
+
+    /**
+     * Sets up a game from a FEN string, such as
+     * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1". The piece placement and
+     * team to move are required; castling rights, en passant square, halfmove clock and
+     * fullmove number may be left off, in which case there are none and the counters start
+     * at 0 and 1. Castling rights whose king or rook is not on its home square, and en passant
+     * squares no pawn can capture onto, are dropped.
+     *
+     * @param fen the position to set up
+     * @return a new game at that position, with no earlier positions to repeat
+     * @throws IllegalArgumentException if the string is not a valid FEN position
+     */
+    public static ChessGame fromFen(String fen) {
+        var game = new ChessGame();
+        game.currBoard = ChessBoard.fromFen(fen);
+
+        // Each field ends at the next space, or at the end of the string
+        int start = fieldStart(fen, fen.indexOf(' '));
+        int end = fieldEnd(fen, start);
+        if (end - start != 1 || (fen.charAt(start) != 'w' && fen.charAt(start) != 'b')) {
+            throw new IllegalArgumentException("expected 'w' or 'b' to move: " + fen);
+        }
+        game.currTeam = fen.charAt(start) == 'w' ? TeamColor.WHITE : TeamColor.BLACK;
+
+        int castling = 0;
+        start = fieldStart(fen, end);
+        end = fieldEnd(fen, start);
+        if (start < end && !(end - start == 1 && fen.charAt(start) == '-')) {
+            for (int i = start; i < end; i++) {
+                int right = CASTLING_LETTERS.indexOf(fen.charAt(i));
+                if (right < 0) {
+                    throw new IllegalArgumentException("unknown castling right '" + fen.charAt(i) + "' in " + fen);
+                }
+                castling |= 1 << right;
+            }
+        }
+        int state = castling & GameState.fromBoard(game.currBoard);
+
+        start = fieldStart(fen, end);
+        end = fieldEnd(fen, start);
+        if (start < end && !(end - start == 1 && fen.charAt(start) == '-')) {
+            state = GameState.withEnPassant(state, parseEnPassant(fen, start, end, game.currTeam, game.currBoard));
+        }
+
+        start = fieldStart(fen, end);
+        end = fieldEnd(fen, start);
+        state = GameState.withHalfmoveClock(state, start < end ? parseCount(fen, start, end) : 0);
+
+        start = fieldStart(fen, end);
+        end = fieldEnd(fen, start);
+        state = GameState.withFullmoveNumber(state, start < end ? Math.max(1, parseCount(fen, start, end)) : 1);
+        if (end < fen.length()) {
+            throw new IllegalArgumentException("unexpected text after the fullmove number: " + fen);
+        }
+
+        game.state = state;
+        return game;
+    }
+
+    /**
+     * Writes the current position as a FEN string
+     *
+     * @return the position, such as "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"
+     */
+    public String toFen() {
+        var builder = currBoard.appendFen(new StringBuilder(90));
+        builder.append(' ').append(currTeam == TeamColor.WHITE ? 'w' : 'b').append(' ');
+
+        int castling = GameState.castling(state);
+        if (castling == 0) {
+            builder.append('-');
+        }
+        for (int right = 0; right < CASTLING_LETTERS.length(); right++) {
+            if ((castling & (1 << right)) != 0) {
+                builder.append(CASTLING_LETTERS.charAt(right));
+            }
+        }
+
+        int enPassant = GameState.enPassant(state);
+        if (enPassant == 0) {
+            builder.append(" -");
+        } else {
+            builder.append(' ').append((char) ('a' + (enPassant & 7))).append((char) ('1' + (enPassant >>> 3)));
+        }
+
+        return builder.append(' ').append(GameState.halfmoveClock(state))
+                .append(' ').append(GameState.fullmoveNumber(state))
+                .toString();
+    }
+
+    private static int fieldStart(String fen, int previousEnd) {
+        return previousEnd < 0 ? fen.length() : Math.min(previousEnd + 1, fen.length());
+    }
+
+    private static int fieldEnd(String fen, int start) {
+        int end = fen.indexOf(' ', start);
+        return end < 0 ? fen.length() : end;
+    }
+
+    /**
+     * Reads an en passant square such as "e3", keeping it only if a pawn of the team to
+     * move could capture onto it, the same way makeMove records it
+     */
+    private static int parseEnPassant(String fen, int start, int end, TeamColor turn, ChessBoard board) {
+        // The skipped square is behind the pawn that just moved two squares
+        char skippedRow = turn == TeamColor.WHITE ? '6' : '3';
+        if (end - start != 2 || fen.charAt(start) < 'a' || fen.charAt(start) > 'h'
+                || fen.charAt(start + 1) != skippedRow) {
+            throw new IllegalArgumentException("invalid en passant square in " + fen);
+        }
+        int sq = (fen.charAt(start + 1) - '1') * 8 + (fen.charAt(start) - 'a');
+        var movedColor = turn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        return (Attacks.PAWN[movedColor.ordinal()][sq] & board.pieces(turn, ChessPiece.PieceType.PAWN)) != 0 ? sq : 0;
+    }
+
+    private static int parseCount(String fen, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c < '0' || c > '9' || count > 100_000) {
+                throw new IllegalArgumentException("invalid move counter in " + fen);
+            }
+            count = count * 10 + (c - '0');
+        }
+        return count;
+    }
+
+    /**
+     * Encodes the game in the compact binary form used for storage, laid out as:
+     * <ul>
+     * <li>1 byte: format version, currently {@value #BINARY_VERSION}</li>
+     * <li>32 bytes: the board, one square per 4 bits from a1 to h8, low bits first; each
+     * square holds 0 if empty, or 1 plus the piece's index (color ordinal * 6 + type ordinal)</li>
+     * <li>1 byte: team to move, as its TeamColor ordinal</li>
+     * <li>4 bytes: castling rights, en passant square and move counters, packed as in GameState</li>
+     * <li>4 bytes: number of earlier positions that can still repeat, followed by 8 bytes
+     * for each of their Zobrist keys, oldest first</li>
+     * <li>4 bytes: number of moves made since the game was set up; if there are any, 8 bytes
+     * for the Zobrist key of the position before the first of them, followed by 2 bytes for
+     * each move, packed as in {@link ChessMove#toPacked()}, oldest first</li>
+     * </ul>
+     * Multi-byte values are big-endian. A new game takes 46 bytes. The moves are carried
+     * along so that a decoded game, like a copy made through this encoding, keeps its whole
+     * log and can be stored as carrying on from where it was read. Versions 1, which had no
+     * moves, and 2, which had no starting key, can still be read.
+     *
+     * @return the encoded game
+     */
+    public byte[] toBytes() {
+        var buffer = ByteBuffer.allocate(BINARY_HEADER_BYTES + historySize * Long.BYTES
+                + Integer.BYTES + (moveCount == 0 ? 0 : Long.BYTES) + moveCount * Short.BYTES);
+        buffer.put(BINARY_VERSION);
+        for (int sq = 0; sq < 64; sq += 2) {
+            int low = currBoard.pieceIndexAt(sq) + 1;
+            int high = currBoard.pieceIndexAt(sq + 1) + 1;
+            buffer.put((byte) (low | (high << 4)));
+        }
+        buffer.put((byte) currTeam.ordinal());
+        buffer.putInt(state);
+        buffer.putInt(historySize);
+        for (int i = 0; i < historySize; i++) {
+            buffer.putLong(positionHistory[i]);
+        }
+        buffer.putInt(moveCount);
+        if (moveCount > 0) {
+            buffer.putLong(startKey);
+        }
+        for (int i = 0; i < moveCount; i++) {
+            buffer.putShort(moveLog[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a game written by {@link #toBytes()}
+     *
+     * @param bytes the encoded game
+     * @return the decoded game
+     * @throws IllegalArgumentException if bytes is not a game in a known format version
+     */
+    public static ChessGame fromBytes(byte[] bytes) {
+        int version = bytes.length == 0 ? 0 : bytes[0];
+        if (bytes.length < BINARY_HEADER_BYTES || version < 1 || version > BINARY_VERSION) {
+            throw new IllegalArgumentException("not an encoded game, or an unknown format version");
+        }
+        var buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+
+        var board = new ChessBoard();
+        for (int sq = 0; sq < 64; sq += 2) {
+            int packed = buffer.get() & 0xFF;
+            setPackedSquare(board, sq, packed & 0xF);
+            setPackedSquare(board, sq + 1, packed >>> 4);
+        }
+
+        int team = buffer.get();
+        int state = buffer.getInt();
+        int historySize = buffer.getInt();
+        if (team < 0 || team > 1 || historySize < 0 || historySize > buffer.remaining() / Long.BYTES) {
+            throw new IllegalArgumentException("corrupt encoded game");
+        }
+        long[] history = new long[historySize];
+        for (int i = 0; i < historySize; i++) {
+            history[i] = buffer.getLong();
+        }
+
+        int moveCount = version >= 2 && buffer.remaining() >= Integer.BYTES ? buffer.getInt() : 0;
+        // Version 2 did not record the starting position, so its logs match no stored fingerprint
+        long startKey = version >= 3 && moveCount > 0 && buffer.remaining() >= Long.BYTES ? buffer.getLong() : 0L;
+        if (moveCount < 0 || moveCount * Short.BYTES != buffer.remaining()) {
+            throw new IllegalArgumentException("corrupt encoded game");
+        }
+        short[] moveLog = new short[moveCount];
+        for (int i = 0; i < moveCount; i++) {
+            moveLog[i] = buffer.getShort();
+        }
+
+        var game = new ChessGame();
+        game.currBoard = board;
+        game.currTeam = TeamColor.values()[team];
+        game.state = state;
+        game.positionHistory = history;
+        game.historySize = historySize;
+        game.moveLog = moveLog;
+        game.moveCount = moveCount;
+        game.startKey = startKey;
+        return game;
+    }
+
+    private static void setPackedSquare(ChessBoard board, int sq, int packed) {
+        if (packed > 12) {
+            throw new IllegalArgumentException("corrupt encoded game: no piece " + packed);
+        }
+        if (packed != 0) {
+            board.setSquare(sq, packed - 1);
+        }
+    }
+
+    /**
+     * Writes a game as {"fen": "...", "history": [...]}: the current position as a FEN
+     * string, plus the Zobrist keys of the earlier positions that can still repeat, which
+     * threefold repetition needs and FEN has no room for. The history is left out when empty.
+     * <p>
+     * Also reads the field-by-field form Gson's reflection produced, so games already stored
+     * in the database keep loading. Games stored before castling rights were tracked get
+     * them inferred from the board, as setBoard does.
+     */
+    static class GsonAdapter extends TypeAdapter<ChessGame> {
+
+        private static final ChessBoard.GsonAdapter BOARDS = new ChessBoard.GsonAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            if (game == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("fen").value(game.toFen());
+            if (game.historySize > 0) {
+                out.name("history");
+                out.beginArray();
+                for (int i = 0; i < game.historySize; i++) {
+                    out.value(game.positionHistory[i]);
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String fen = null;
+            TeamColor team = null;
+            ChessBoard board = null;
+            Integer state = null;
+            long[] history = new long[0];
+            int historySize = -1;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "fen" -> fen = in.nextString();
+                    case "history", "positionHistory" -> history = readHistory(in);
+                    case "historySize" -> historySize = in.nextInt();
+                    case "currTeam" -> team = TeamColor.valueOf(in.nextString());
+                    case "currBoard" -> board = BOARDS.read(in);
+                    case "state" -> state = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+
+            ChessGame game;
+            if (fen != null) {
+                try {
+                    game = fromFen(fen);
+                } catch (IllegalArgumentException e) {
+                    throw new JsonSyntaxException(e.getMessage(), e);
+                }
+            } else {
+                game = new ChessGame();
+                if (board != null) {
+                    game.setBoard(board);
+                }
+                if (team != null) {
+                    game.currTeam = team;
+                }
+                if (state != null) {
+                    // Games stored before the fullmove number was tracked have none
+                    game.state = GameState.fullmoveNumber(state) == 0 ? GameState.withFullmoveNumber(state, 1) : state;
+                }
+            }
+
+            // The reflective form stored the whole buffer, including its unused tail
+            game.positionHistory = history;
+            game.historySize = historySize < 0 ? history.length : Math.min(historySize, history.length);
+            return game;
+        }
+
+        private static long[] readHistory(JsonReader in) throws IOException {
+            long[] history = new long[16];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == history.length) {
+                    history = Arrays.copyOf(history, size * 2);
+                }
+                history[size++] = in.nextLong();
+            }
+            in.endArray();
+            return Arrays.copyOf(history, size);
+        }
+    }
 }
@@ -1,5 +1,13 @@
 package chess;
 
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -8,6 +16,7 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessMove.GsonAdapter.class)
 public class ChessMove {
     @Override
     public boolean equals(Object o) {
@@ -22,7 +31,11 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(getStartPosition(), getEndPosition(), getPromotionPiece());
+        // Combine the fields by hand rather than with Objects.hash, which boxes them into an array
+        int start = startPosition == null ? 0 : startPosition.hashCode();
+        int end = endPosition == null ? 0 : endPosition.hashCode();
+        int promotion = promotionPiece == null ? 0 : promotionPiece.ordinal() + 1;
+        return (start * 31 + end) * 7 + promotion;
     }
 
     private final ChessPosition startPosition;
@@ -64,4 +77,151 @@ public class ChessMove {
     public ChessPiece.PieceType getPromotionPiece() {
         return promotionPiece;
     }
+
+    /**
+     * Packs the move into 15 bits: the start square in bits 0-5 and the end square in bits
+     * 6-11, each numbered (row - 1) * 8 + (column - 1), and the promotion piece in bits 12-14
+     * as its PieceType ordinal + 1, or 0 for none. Both positions must be on the board.
+     *
+     * @return the packed move
+     */
+    public int toPacked() {
+        return Move.encode(this);
+    }
+
+    /**
+     * Unpacks a move packed by {@link #toPacked()}
+     *
+     * @param packed the packed move
+     * @return the move, using the shared position instances
+     * @throws IllegalArgumentException if packed is not a packed move
+     */
+    public static ChessMove fromPacked(int packed) {
+        if ((packed & ~Move.SQUARES_AND_PROMOTION) != 0 || Move.promotion(packed) > ChessPiece.PieceType.values().length) {
+            throw new IllegalArgumentException("not a packed move: " + packed);
+        }
+        return Move.toChessMove(packed);
+    }
+
+    /**
+     * Writes the move in coordinate notation: the start and end squares, followed by the
+     * promotion piece in lower case, such as "e2e4" or "e7e8q"
+     *
+     * @return the move in coordinate notation, or null if either position is off the board
+     */
+    String coordinates() {
+        var start = startPosition == null ? null : startPosition.squareName();
+        var end = endPosition == null ? null : endPosition.squareName();
+        if (start == null || end == null) {
+            return null;
+        }
+        if (promotionPiece == null) {
+            return start.concat(end);
+        }
+        return new StringBuilder(5).append(start).append(end).append(switch (promotionPiece) {
+            case QUEEN -> 'q';
+            case ROOK -> 'r';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case KING -> 'k';
+            case PAWN -> 'p';
+        }).toString();
+    }
+
+    /**
+     * Reads a move in coordinate notation, as written by coordinates()
+     *
+     * @return the move, or null if text is not a move in coordinate notation
+     */
+    static ChessMove parse(String text) {
+        if (text.length() != 4 && text.length() != 5) {
+            return null;
+        }
+        var start = ChessPosition.parse(text, 0);
+        var end = ChessPosition.parse(text, 2);
+        if (start == null || end == null) {
+            return null;
+        }
+        if (text.length() == 4) {
+            return new ChessMove(start, end, null);
+        }
+        var promotion = switch (text.charAt(4)) {
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> null;
+        };
+        return promotion == null ? null : new ChessMove(start, end, promotion);
+    }
+
+    /**
+     * Writes moves in coordinate notation ("e2e4"), falling back to the
+     * {"startPosition": ..., "endPosition": ..., "promotionPiece": ...} form Gson's
+     * reflection produced for moves that leave the board. Reads either form.
+     */
+    static class GsonAdapter extends TypeAdapter<ChessMove> {
+
+        private static final ChessPosition.GsonAdapter POSITIONS = new ChessPosition.GsonAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException {
+            if (move == null) {
+                out.nullValue();
+                return;
+            }
+            var coordinates = move.coordinates();
+            if (coordinates != null) {
+                out.value(coordinates);
+                return;
+            }
+            out.beginObject();
+            out.name("startPosition");
+            POSITIONS.write(out, move.startPosition);
+            out.name("endPosition");
+            POSITIONS.write(out, move.endPosition);
+            if (move.promotionPiece != null) {
+                out.name("promotionPiece").value(move.promotionPiece.name());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (in.peek() == JsonToken.STRING) {
+                var text = in.nextString();
+                var move = parse(text);
+                if (move == null) {
+                    throw new JsonSyntaxException("not a move in coordinate notation: " + text);
+                }
+                return move;
+            }
+            ChessPosition start = null;
+            ChessPosition end = null;
+            ChessPiece.PieceType promotion = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "startPosition" -> start = POSITIONS.read(in);
+                    case "endPosition" -> end = POSITIONS.read(in);
+                    case "promotionPiece" -> {
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            promotion = ChessPiece.PieceType.valueOf(in.nextString());
+                        }
+                    }
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessMove(start, end, promotion);
+        }
+    }
 }
@@ -1,17 +1,38 @@
 package chess;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Objects;
 
 /**
  * Represents a single chess piece
  * <p>
+ * Pieces are immutable, so one instance of each of the twelve kinds is cached; prefer
+ * {@link #of(ChessGame.TeamColor, PieceType)} over the constructor to reuse them.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPiece.GsonAdapter.class)
 public class ChessPiece {
 
+    // Canonical instances, indexed by color ordinal * 6 + type ordinal
+    private static final ChessPiece[] KINDS = new ChessPiece[12];
+
+    static {
+        for (var color : ChessGame.TeamColor.values()) {
+            for (var type : PieceType.values()) {
+                KINDS[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
@@ -20,8 +41,18 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * @return the shared instance of a piece of this color and type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return KINDS[pieceColor.ordinal() * 6 + type.ordinal()];
+    }
+
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -31,7 +62,7 @@ public class ChessPiece {
 
     @Override
     public int hashCode() {
-        return Objects.hash(pieceColor, type);
+        return pieceColor.ordinal() * 6 + type.ordinal();
     }
 
     /**
@@ -60,63 +91,7 @@ public class ChessPiece {
         return type;
     }
 
-    static public class BaseMoves {
-
-        /**
-         * Takes an existing board, and adds the possible moves for a piece of the indicated color starting from the indicated position.
-         * The piece moves in coordinate steps included in the offsets list, with optional recursion.
-         * NOTE: does not consider whether a move leaves a king in danger.
-         *
-         * @param startPos  position of the piece
-         * @param board     existing board
-         * @param myColor   color of the piece
-         * @param offsets   directions the piece can move
-         * @param recursive whether the piece can make multiple moves in the direction of an offset
-         *
-         * @return Collection of valid moves
-         */
-        public HashSet<ChessMove> computeMovesBase(ChessPosition startPos, ChessBoard board, ChessGame.TeamColor myColor,
-                                 int[][] offsets, boolean recursive) {
-
-            HashSet<ChessMove> moves = new HashSet<>();
-
-            // Consider all the possible direction we can move
-            for (var offset : offsets) {
-                var currRow = startPos.getRow();
-                var currCol = startPos.getColumn();
-
-                while (true) {
-                    currRow += offset[0];
-                    currCol += offset[1];
-
-                    // Reached end of board; cannot move forward
-                    if (currRow < 1 || currRow > 8 || currCol < 1 || currCol > 8) {
-                        break;
-                    }
-
-                    // Move the piece, if our own piece is not in the way
-                    var newPos = new ChessPosition(currRow, currCol);
-                    var newPiece = board.getPiece(newPos);
-                    if (newPiece != null) {
-                        // Capture enemy piece and exit the loop
-                        if (newPiece.getTeamColor() != myColor) {
-                            moves.add(new ChessMove(startPos, newPos, null));
-                        }
-                        break;
-                    }
-                    moves.add(new ChessMove(startPos, newPos, null));
-
-                    // Only recurse if instructed to
-                    if (!recursive) {
-                        break;
-                    }
-                }
-            }
-            return moves;
-        }
-    }
-
-    static public class BishopMoves extends BaseMoves {
+    static public class BishopMoves {
         /**
          * Takes an existing board, and adds the possible moves for a bishop of the indicated color starting from the indicated position.
          * NOTE: does not consider whether a move leaves a king in danger.
@@ -128,12 +103,11 @@ public class ChessPiece {
          * @return Collection of valid moves
          */
         public HashSet<ChessMove> computeMovesBishop(ChessPosition startPos, ChessBoard board, ChessGame.TeamColor myColor) {
-            int[][] bishopOffsets = new int[][]{{1, -1}, {-1, 1}, {1, 1}, {-1, -1}};
-            return computeMovesBase(startPos, board, myColor, bishopOffsets, true);
+            return generateMoves(startPos, board, myColor, PieceType.BISHOP);
         }
     }
 
-    static public class KingMoves extends BaseMoves {
+    static public class KingMoves {
         /**
          * Takes an existing board, and adds the possible moves for a king of the indicated color starting from the indicated position.
          * NOTE: does not consider whether a move leaves a king in danger.
@@ -145,12 +119,11 @@ public class ChessPiece {
          * @return Collection of valid moves
          */
         public HashSet<ChessMove> computeMovesKing(ChessPosition startPos, ChessBoard board, ChessGame.TeamColor myColor) {
-            int[][] kingOffsets = new int[][]{{1, -1}, {-1, 1}, {1, 1}, {-1, -1}, {0, 1}, {0, -1}, {1, 0}, {-1, 0}};
-            return computeMovesBase(startPos, board, myColor, kingOffsets, false);
+            return generateMoves(startPos, board, myColor, PieceType.KING);
         }
     }
 
-    static public class KnightMoves extends BaseMoves {
+    static public class KnightMoves {
         /**
          * Takes an existing board, and adds the possible moves for a knight of the indicated color starting from the indicated position.
          * NOTE: does not consider whether a move leaves a king in danger.
@@ -162,12 +135,11 @@ public class ChessPiece {
          * @return Collection of valid moves
          */
         public HashSet<ChessMove> computeMovesKnight(ChessPosition startPos, ChessBoard board, ChessGame.TeamColor myColor) {
-            int[][] knightOffsets = new int[][]{{2, -1}, {-2, 1}, {2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, -2}, {-1, 2}};
-            return computeMovesBase(startPos, board, myColor, knightOffsets, false);
+            return generateMoves(startPos, board, myColor, PieceType.KNIGHT);
         }
     }
 
-    static public class RookMoves extends BaseMoves {
+    static public class RookMoves {
         /**
          * Takes an existing board, and adds the possible moves for a rook of the indicated color starting from the indicated position.
          * NOTE: does not consider whether a move leaves a king in danger.
@@ -179,12 +151,11 @@ public class ChessPiece {
          * @return Collection of valid moves
          */
         public HashSet<ChessMove> computeMovesRook(ChessPosition startPos, ChessBoard board, ChessGame.TeamColor myColor) {
-            int[][] rookOffsets = new int[][]{{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
-            return computeMovesBase(startPos, board, myColor, rookOffsets, true);
+            return generateMoves(startPos, board, myColor, PieceType.ROOK);
         }
     }
 
-    static public class QueenMoves extends BaseMoves {
+    static public class QueenMoves {
         /**
          * Takes an existing board, and adds the possible moves for a queen of the indicated color starting from the indicated position.
          * NOTE: does not consider whether a move leaves a king in danger.
@@ -196,8 +167,7 @@ public class ChessPiece {
          * @return Collection of valid moves
          */
         public HashSet<ChessMove> computeMovesQueen(ChessPosition startPos, ChessBoard board, ChessGame.TeamColor myColor) {
-            int[][] queenOffsets = new int[][]{{1, -1}, {-1, 1}, {1, 1}, {-1, -1}, {0, 1}, {0, -1}, {1, 0}, {-1, 0}};
-            return computeMovesBase(startPos, board, myColor, queenOffsets, true);
+            return generateMoves(startPos, board, myColor, PieceType.QUEEN);
         }
     }
 
@@ -213,87 +183,30 @@ public class ChessPiece {
          * @return Collection of valid moves
          */
         public HashSet<ChessMove> computeMovesPawn(ChessPosition startPos, ChessBoard board, ChessGame.TeamColor myColor) {
-            HashSet<ChessMove> moves = new HashSet<>();
-
-            ChessPiece.PieceType[] promotionPieces = new ChessPiece.PieceType[]{PieceType.ROOK, PieceType.KNIGHT, PieceType.BISHOP, PieceType.QUEEN};
-
-            int maxMoves = 1;
-            var currRow = startPos.getRow();
-            var currCol = startPos.getColumn();
-
-            // Determine if this is the pawn's first move
-            if (myColor == ChessGame.TeamColor.WHITE && currRow == 2) {
-                maxMoves = 2;
-            } else if (myColor == ChessGame.TeamColor.BLACK && currRow == 7) {
-                maxMoves = 2;
-            }
-
-            // Forward moves
-            while (maxMoves > 0) {
-                if (myColor == ChessGame.TeamColor.WHITE) {
-                    currRow += 1;
-                } else if (myColor == ChessGame.TeamColor.BLACK) {
-                    currRow -= 1;
-                }
-
-                // Reached end of board; cannot move forward
-                if (currRow < 1 || currRow > 8 || currCol < 1 || currCol > 8) {
-                    break;
-                }
-
-                // Cannot capture a piece when moving forward
-                var newPos = new ChessPosition(currRow, currCol);
-                var newPiece = board.getPiece(newPos);
-                if (newPiece != null ) {
-                    break;
-                }
-
-                // Move the pawn forward, and potentially promote it
-                if ((myColor == ChessGame.TeamColor.WHITE && currRow == 8) || (myColor == ChessGame.TeamColor.BLACK && currRow == 1)) {
-                    for (var pPiece : promotionPieces) {
-                        moves.add(new ChessMove(startPos, newPos, pPiece));
-                    }
-                } else {
-                    moves.add(new ChessMove(startPos, newPos, null));
-                }
-                maxMoves -= 1;
-            }
-
-            // Diagonal moves
-            int[][] offsets;
-            if (myColor == ChessGame.TeamColor.WHITE) {
-                offsets = new int[][]{{1, -1}, {1, 1}};
-            } else {
-                offsets = new int[][]{{-1, -1}, {-1, 1}};
-            }
-
-            for (var offset : offsets) {
-                var currRow2 = startPos.getRow();
-                var currCol2 = startPos.getColumn();
-
-                currRow2 += offset[0];
-                currCol2 += offset[1];
-
-                // Reached end of board; cannot move forward
-                if (currRow2 < 1 || currRow2 > 8 || currCol2 < 1 || currCol2 > 8) {
-                    continue;
-                }
+            return generateMoves(startPos, board, myColor, PieceType.PAWN);
+        }
+    }
 
-                // Move the pawn diagonally, if possible, and potentially promote it
-                var newPos = new ChessPosition(currRow2, currCol2);
-                var newPiece = board.getPiece(newPos);
-                if (newPiece != null && newPiece.getTeamColor() != myColor) {
-                    if ((myColor == ChessGame.TeamColor.WHITE && currRow2 == 8) || (myColor == ChessGame.TeamColor.BLACK && currRow2 == 1)) {
-                        for (var pPiece : promotionPieces) {
-                            moves.add(new ChessMove(startPos, newPos, pPiece));
-                        }
-                    } else {
-                        moves.add(new ChessMove(startPos, newPos, null));
-                    }
-                }
-            }
-            return moves;
+    /**
+     * Generates the moves of a piece as packed moves, and only then builds ChessMove objects for them
+     *
+     * @param startPos position of the piece
+     * @param board    existing board
+     * @param color    color of the piece
+     * @param type     type of the piece
+     *
+     * @return Collection of valid moves
+     */
+    static HashSet<ChessMove> generateMoves(ChessPosition startPos, ChessBoard board, ChessGame.TeamColor color,
+                                            PieceType type) {
+        var packedMoves = new MoveList();
+        MoveGenerator.generate(board, ChessBoard.square(startPos), ChessBoard.pieceIndex(color, type), packedMoves);
+
+        HashSet<ChessMove> moves = new HashSet<>();
+        for (int i = 0; i < packedMoves.size(); i++) {
+            moves.add(Move.toChessMove(packedMoves.get(i)));
         }
+        return moves;
     }
 
     /**
@@ -305,15 +218,48 @@ public class ChessPiece {
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
         ChessPiece currPiece = board.getPiece(myPosition);
-        var myColor = currPiece.getTeamColor();
+        return generateMoves(myPosition, board, currPiece.getTeamColor(), currPiece.getPieceType());
+    }
+
+    /**
+     * Reads and writes pieces in the same {"pieceColor": ..., "type": ...} form Gson's
+     * reflection produced, but hands back the cached instances when reading
+     */
+    static class GsonAdapter extends TypeAdapter<ChessPiece> {
 
-        return switch (currPiece.getPieceType()) {
-            case PieceType.BISHOP -> new BishopMoves().computeMovesBishop(myPosition, board, myColor);
-            case PieceType.KING -> new KingMoves().computeMovesKing(myPosition, board, myColor);
-            case PieceType.KNIGHT -> new KnightMoves().computeMovesKnight(myPosition, board, myColor);
-            case PieceType.ROOK -> new RookMoves().computeMovesRook(myPosition, board, myColor);
-            case PieceType.QUEEN -> new QueenMoves().computeMovesQueen(myPosition, board, myColor);
-            case PieceType.PAWN -> new PawnMoves().computeMovesPawn(myPosition, board, myColor);
-        };
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            if (piece == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("pieceColor").value(piece.pieceColor.name());
+            out.name("type").value(piece.type.name());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ChessGame.TeamColor color = null;
+            PieceType type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = ChessGame.TeamColor.valueOf(in.nextString());
+                    case "type" -> type = PieceType.valueOf(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (color == null || type == null) {
+                throw new IOException("chess piece is missing its color or type");
+            }
+            return of(color, type);
+        }
     }
-}
\ No newline at end of file
+}
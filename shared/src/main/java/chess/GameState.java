@@ -0,0 +1,105 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Packs the parts of a game's state that the board alone does not show into a single int.
+ * Bits 0-3 hold the castling rights still available, and bits 4-9 the square a pawn may
+ * capture onto en passant (see ChessBoard for square numbering), or 0 if there is none.
+ * a1 can never be an en passant square, so 0 is free to mean "none". Bits 10-17 hold the
+ * halfmove clock, the number of moves since the last capture or pawn move, which stops
+ * counting at 255, and bits 18-30 the fullmove number, which starts at 1 and goes up after
+ * each black move.
+ */
+final class GameState {
+
+    static final int WHITE_KINGSIDE = 1;
+    static final int WHITE_QUEENSIDE = 1 << 1;
+    static final int BLACK_KINGSIDE = 1 << 2;
+    static final int BLACK_QUEENSIDE = 1 << 3;
+    static final int ALL_CASTLING = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+
+    private static final int MAX_FULLMOVE_NUMBER = (1 << 13) - 1;
+
+    // The state of a game set up at the standard starting position
+    static final int INITIAL = ALL_CASTLING | (1 << 18);
+
+    // The parts of the state that describe the position itself, leaving out the halfmove clock
+    static final int POSITION = ALL_CASTLING | (63 << 4);
+
+    private static final int MAX_HALFMOVE_CLOCK = 255;
+
+    // Castling rights kept when a piece moves from or to each square; moving the king or a
+    // rook off its home square, or capturing a rook on its home square, drops the rights
+    private static final int[] CASTLING_KEPT = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_KEPT, ALL_CASTLING);
+        CASTLING_KEPT[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_KEPT[7] &= ~WHITE_KINGSIDE;
+        CASTLING_KEPT[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_KEPT[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_KEPT[63] &= ~BLACK_KINGSIDE;
+        CASTLING_KEPT[56] &= ~BLACK_QUEENSIDE;
+    }
+
+    private GameState() {
+    }
+
+    static int castling(int state) {
+        return state & ALL_CASTLING;
+    }
+
+    /**
+     * @return the en passant target square, or 0 if no pawn can be captured en passant
+     */
+    static int enPassant(int state) {
+        return (state >>> 4) & 63;
+    }
+
+    static int withEnPassant(int state, int sq) {
+        return (state & ~(63 << 4)) | (sq << 4);
+    }
+
+    static int halfmoveClock(int state) {
+        return (state >>> 10) & MAX_HALFMOVE_CLOCK;
+    }
+
+    static int withHalfmoveClock(int state, int clock) {
+        return (state & ~(MAX_HALFMOVE_CLOCK << 10)) | (Math.min(clock, MAX_HALFMOVE_CLOCK) << 10);
+    }
+
+    static int fullmoveNumber(int state) {
+        return (state >>> 18) & MAX_FULLMOVE_NUMBER;
+    }
+
+    static int withFullmoveNumber(int state, int number) {
+        return (state & ~(MAX_FULLMOVE_NUMBER << 18)) | (Math.min(number, MAX_FULLMOVE_NUMBER) << 18);
+    }
+
+    /**
+     * Updates the castling rights for a move between two squares
+     */
+    static int afterMoveBetween(int state, int from, int to) {
+        return state & ~ALL_CASTLING | (castling(state) & CASTLING_KEPT[from] & CASTLING_KEPT[to]);
+    }
+
+    /**
+     * Infers castling rights from a board: a right is kept while the king and the rook
+     * it would castle with both stand on their home squares
+     */
+    static int fromBoard(ChessBoard board) {
+        int rights = 0;
+        long whiteRooks = board.pieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        long blackRooks = board.pieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        if (board.kingSquare(ChessGame.TeamColor.WHITE) == 4) {
+            rights |= (whiteRooks & (1L << 7)) != 0 ? WHITE_KINGSIDE : 0;
+            rights |= (whiteRooks & 1L) != 0 ? WHITE_QUEENSIDE : 0;
+        }
+        if (board.kingSquare(ChessGame.TeamColor.BLACK) == 60) {
+            rights |= (blackRooks & (1L << 63)) != 0 ? BLACK_KINGSIDE : 0;
+            rights |= (blackRooks & (1L << 56)) != 0 ? BLACK_QUEENSIDE : 0;
+        }
+        return rights;
+    }
+}
@@ -0,0 +1,43 @@
+package chess;
+
+/**
+ * The outcome of a position for each team: whether the team is in check, and whether
+ * the game has ended in checkmate or stalemate for it
+ *
+ * @param white state of the white team
+ * @param black state of the black team
+ */
+public record GameStatus(State white, State black) {
+
+    /**
+     * The possible states of a single team
+     */
+    public enum State {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE;
+
+        /**
+         * @return True if this state ends the game
+         */
+        public boolean isGameOver() {
+            return this == CHECKMATE || this == STALEMATE;
+        }
+    }
+
+    /**
+     * @param teamColor which team to get the state of
+     * @return state of the given team
+     */
+    public State of(ChessGame.TeamColor teamColor) {
+        return teamColor == ChessGame.TeamColor.WHITE ? white : black;
+    }
+
+    /**
+     * @return True if the game has ended for either team
+     */
+    public boolean isGameOver() {
+        return white.isGameOver() || black.isGameOver();
+    }
+}
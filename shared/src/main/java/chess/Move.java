@@ -0,0 +1,62 @@
+package chess;
+
+/**
+ * Packs a move into a single int so move generation can run without allocating ChessMove
+ * objects. Bits 0-5 hold the start square and bits 6-11 the end square (see ChessBoard for
+ * square numbering), bits 12-14 the promotion piece as PieceType ordinal + 1 (0 for none),
+ * and the bits above that hold flags describing the move.
+ */
+final class Move {
+
+    static final int CAPTURE = 1 << 15;
+    static final int DOUBLE_PUSH = 1 << 16;
+    static final int CASTLE = 1 << 17;
+    static final int EN_PASSANT = 1 << 18;
+
+    // Start square, end square and promotion; the part of a move a ChessMove describes
+    static final int SQUARES_AND_PROMOTION = (1 << 15) - 1;
+
+    private Move() {
+    }
+
+    static int encode(int from, int to, int promotion, int flags) {
+        return from | (to << 6) | (promotion << 12) | flags;
+    }
+
+    /**
+     * Packs a ChessMove, without any flags
+     */
+    static int encode(ChessMove move) {
+        var promotionPiece = move.getPromotionPiece();
+        return encode(ChessBoard.square(move.getStartPosition()), ChessBoard.square(move.getEndPosition()),
+                promotionPiece == null ? 0 : promotionPiece.ordinal() + 1, 0);
+    }
+
+    static int from(int move) {
+        return move & 63;
+    }
+
+    static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * @return PieceType ordinal + 1 of the promotion piece, or 0 if the move is not a promotion
+     */
+    static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * Builds the public representation of a packed move
+     */
+    static ChessMove toChessMove(int move) {
+        int promotion = promotion(move);
+        return new ChessMove(ChessBoard.toPosition(from(move)), ChessBoard.toPosition(to(move)),
+                promotion == 0 ? null : ChessPiece.PieceType.values()[promotion - 1]);
+    }
+}
@@ -0,0 +1,273 @@
+package chess;
+
+/**
+ * Generates moves straight from a board's bitboards into a MoveList of packed moves.
+ * The generate methods, like ChessPiece.pieceMoves, do not consider whether a move leaves
+ * the king in danger, and leave out castling and en passant since those depend on the
+ * game's history; generateLegal emits every legal move, including those two.
+ */
+final class MoveGenerator {
+
+    private static final int KING = ChessPiece.PieceType.KING.ordinal();
+    private static final int QUEEN = ChessPiece.PieceType.QUEEN.ordinal();
+    private static final int BISHOP = ChessPiece.PieceType.BISHOP.ordinal();
+    private static final int KNIGHT = ChessPiece.PieceType.KNIGHT.ordinal();
+    private static final int ROOK = ChessPiece.PieceType.ROOK.ordinal();
+
+    // Promotion choices, as PieceType ordinal + 1
+    private static final int[] PROMOTIONS = {ROOK + 1, KNIGHT + 1, BISHOP + 1, QUEEN + 1};
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Adds the moves of a piece standing on a square
+     *
+     * @param board      the board to generate moves on
+     * @param from       square of the piece
+     * @param pieceIndex ChessBoard.pieceIndex of the piece
+     * @param moves      list to add the moves to
+     */
+    static void generate(ChessBoard board, int from, int pieceIndex, MoveList moves) {
+        int color = ChessBoard.colorIndex(pieceIndex);
+        int type = pieceIndex - color * 6;
+        long own = board.colorOccupancy[color];
+        long enemy = board.colorOccupancy[1 - color];
+
+        long targets;
+        if (type == KING) {
+            targets = Attacks.KING[from];
+        } else if (type == KNIGHT) {
+            targets = Attacks.KNIGHT[from];
+        } else if (type == BISHOP) {
+            targets = Attacks.bishop(from, board.occupied);
+        } else if (type == ROOK) {
+            targets = Attacks.rook(from, board.occupied);
+        } else if (type == QUEEN) {
+            targets = Attacks.queen(from, board.occupied);
+        } else {
+            addPawnMoves(from, color, board.occupied, enemy, moves);
+            return;
+        }
+        addTargets(from, targets & ~own, enemy, moves);
+    }
+
+    /**
+     * Adds the moves of every piece of a team
+     */
+    static void generateAll(ChessBoard board, ChessGame.TeamColor color, MoveList moves) {
+        long pieces = board.occupancy(color);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            generate(board, from, board.pieceIndexAt(from), moves);
+        }
+    }
+
+    /**
+     * Adds only the legal moves of a team's pieces. Instead of trying each move on the board,
+     * this finds the pieces pinned to the king and the squares that resolve a check up front,
+     * then keeps the moves of pinned pieces that stay on their pin line, and every other move
+     * that lands on a check-resolving square. Only king moves are tested for attacks.
+     *
+     * @param board       the board to generate moves on
+     * @param color       team to generate moves for
+     * @param state       the game's packed GameState, with no en passant square unless color is to move
+     * @param fromSquares bitboard of the squares whose pieces to generate moves for
+     * @param moves       list to add the moves to
+     */
+    static void generateLegal(ChessBoard board, ChessGame.TeamColor color, int state, long fromSquares,
+                              MoveList moves) {
+        var enemyColor = color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        int kingSq = board.kingSquare(color);
+        boolean hasKing = kingSq < 64;
+
+        // Squares a non-king move must land on: anywhere when not in check, the checking piece
+        // or a square blocking it in single check, and nowhere in double check
+        long checkers = hasKing ? board.attackersOf(kingSq, enemyColor) : 0;
+        long evasionMask = -1L;
+        if (Long.bitCount(checkers) == 1) {
+            evasionMask = checkers | Attacks.BETWEEN[kingSq][Long.numberOfTrailingZeros(checkers)];
+        } else if (checkers != 0) {
+            evasionMask = 0;
+        }
+        long pinned = hasKing ? pinnedPieces(board, color.ordinal(), kingSq) : 0;
+
+        long pieces = board.occupancy(color) & fromSquares;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+
+            int first = moves.size();
+            generate(board, from, board.pieceIndexAt(from), moves);
+            int kept = first;
+            for (int i = first; i < moves.size(); i++) {
+                int move = moves.get(i);
+                long toBit = 1L << Move.to(move);
+                boolean legal;
+                if (from == kingSq) {
+                    legal = !kingMoveAttacked(board, kingSq, Move.to(move), enemyColor);
+                } else if ((pinned & (1L << from)) != 0) {
+                    legal = (evasionMask & Attacks.LINE[kingSq][from] & toBit) != 0;
+                } else {
+                    legal = (evasionMask & toBit) != 0;
+                }
+                if (legal) {
+                    moves.set(kept++, move);
+                }
+            }
+            moves.truncate(kept);
+        }
+
+        // Castling and en passant depend on the game state rather than the board alone
+        if (hasKing && checkers == 0 && (fromSquares & (1L << kingSq)) != 0 && GameState.castling(state) != 0) {
+            addCastling(board, color, enemyColor, state, kingSq, moves);
+        }
+        int enPassant = GameState.enPassant(state);
+        if (enPassant != 0) {
+            addEnPassant(board, color.ordinal(), enemyColor, enPassant, fromSquares, kingSq, moves);
+        }
+    }
+
+    /**
+     * Adds the castling moves still allowed. The king may not castle out of check, which the
+     * caller has ruled out, nor across or onto an attacked square, and every square between
+     * the king and the rook must be empty.
+     */
+    private static void addCastling(ChessBoard board, ChessGame.TeamColor color, ChessGame.TeamColor enemyColor,
+                                    int state, int kingSq, MoveList moves) {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int home = white ? 4 : 60;
+        if (kingSq != home) {
+            return;
+        }
+        long rooks = board.pieces(color, ChessPiece.PieceType.ROOK);
+
+        int kingside = white ? GameState.WHITE_KINGSIDE : GameState.BLACK_KINGSIDE;
+        if ((state & kingside) != 0 && (rooks & (1L << (home + 3))) != 0
+                && (Attacks.BETWEEN[home][home + 3] & board.occupied) == 0
+                && !board.isSquareAttacked(home + 1, enemyColor) && !board.isSquareAttacked(home + 2, enemyColor)) {
+            moves.add(Move.encode(home, home + 2, 0, Move.CASTLE));
+        }
+
+        int queenside = white ? GameState.WHITE_QUEENSIDE : GameState.BLACK_QUEENSIDE;
+        if ((state & queenside) != 0 && (rooks & (1L << (home - 4))) != 0
+                && (Attacks.BETWEEN[home][home - 4] & board.occupied) == 0
+                && !board.isSquareAttacked(home - 1, enemyColor) && !board.isSquareAttacked(home - 2, enemyColor)) {
+            moves.add(Move.encode(home, home - 2, 0, Move.CASTLE));
+        }
+    }
+
+    /**
+     * Adds the en passant captures onto a square. En passant removes two pawns from the same
+     * row at once, which can expose the king in ways the pin masks do not describe, so the
+     * king is checked against the occupancy the capture would leave, without touching the board.
+     */
+    private static void addEnPassant(ChessBoard board, int color, ChessGame.TeamColor enemyColor, int target,
+                                     long fromSquares, int kingSq, MoveList moves) {
+        int ownPawn = color * 6 + ChessPiece.PieceType.PAWN.ordinal();
+        int enemyPawn = (1 - color) * 6 + ChessPiece.PieceType.PAWN.ordinal();
+        int capturedSq = color == 0 ? target - 8 : target + 8;
+        if ((board.pieces[enemyPawn] & (1L << capturedSq)) == 0 || (board.occupied & (1L << target)) != 0) {
+            return;
+        }
+
+        // Our pawns that could capture onto the target stand where an enemy pawn there would attack
+        long pawns = board.pieces[ownPawn] & Attacks.PAWN[1 - color][target] & fromSquares;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+
+            // Both pawns leave their squares and ours lands on the target; the captured pawn
+            // drops out of the occupancy, so it no longer counts as an attacker either
+            long occupancy = (board.occupied & ~(1L << from) & ~(1L << capturedSq)) | (1L << target);
+            if (kingSq == 64 || !board.isSquareAttacked(kingSq, enemyColor, occupancy)) {
+                moves.add(Move.encode(from, target, 0, Move.CAPTURE | Move.EN_PASSANT));
+            }
+        }
+    }
+
+    /**
+     * Finds the team's pieces that are the only piece between their king and an enemy
+     * rook, bishop or queen attacking along that line
+     */
+    private static long pinnedPieces(ChessBoard board, int color, int kingSq) {
+        int enemyBase = (1 - color) * 6;
+        long queens = board.pieces[enemyBase + QUEEN];
+        long enemy = board.colorOccupancy[1 - color];
+
+        // Sliders that would attack the king if only enemy pieces were on the board
+        long pinners = (Attacks.rook(kingSq, enemy) & (queens | board.pieces[enemyBase + ROOK]))
+                | (Attacks.bishop(kingSq, enemy) & (queens | board.pieces[enemyBase + BISHOP]));
+
+        long pinned = 0;
+        while (pinners != 0) {
+            int pinner = Long.numberOfTrailingZeros(pinners);
+            pinners &= pinners - 1;
+
+            // Pinned if exactly one piece stands in between, and it is one of ours
+            long blockers = Attacks.BETWEEN[kingSq][pinner] & board.occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & board.colorOccupancy[color]) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Determines whether the king would be attacked on a square. The king's own square counts
+     * as empty, so a slider checking it still attacks the squares behind it. The board itself
+     * is left alone, since other threads may be reading the same game.
+     */
+    private static boolean kingMoveAttacked(ChessBoard board, int kingSq, int to, ChessGame.TeamColor enemyColor) {
+        return board.isSquareAttacked(to, enemyColor, board.occupied & ~(1L << kingSq));
+    }
+
+    private static void addTargets(int from, long targets, long enemy, MoveList moves) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(Move.encode(from, to, 0, (enemy & (1L << to)) != 0 ? Move.CAPTURE : 0));
+        }
+    }
+
+    private static void addPawnMoves(int from, int color, long occupied, long enemy, MoveList moves) {
+        int row = from >>> 3;
+        int col = from & 7;
+        int forward = color == 0 ? 1 : -1;
+        int startRow = color == 0 ? 1 : 6;
+        int nextRow = row + forward;
+        if (nextRow < 0 || nextRow > 7) {
+            return;
+        }
+
+        // Forward moves cannot capture, and may only advance two squares from the starting row
+        int to = nextRow * 8 + col;
+        if ((occupied & (1L << to)) == 0) {
+            addPawnMove(from, to, 0, moves);
+            int jump = to + forward * 8;
+            if (row == startRow && (occupied & (1L << jump)) == 0) {
+                moves.add(Move.encode(from, jump, 0, Move.DOUBLE_PUSH));
+            }
+        }
+
+        // Diagonal moves must capture
+        long captures = Attacks.PAWN[color][from] & enemy;
+        while (captures != 0) {
+            int target = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            addPawnMove(from, target, Move.CAPTURE, moves);
+        }
+    }
+
+    private static void addPawnMove(int from, int to, int flags, MoveList moves) {
+        // Pawns reaching the last row must promote
+        if (to < 8 || to >= 56) {
+            for (int promotion : PROMOTIONS) {
+                moves.add(Move.encode(from, to, promotion, flags));
+            }
+        } else {
+            moves.add(Move.encode(from, to, 0, flags));
+        }
+    }
+}
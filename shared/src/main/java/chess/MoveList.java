@@ -0,0 +1,38 @@
+package chess;
+
+/**
+ * A reusable buffer of packed moves (see Move), so generating moves does not allocate
+ */
+final class MoveList {
+
+    // No legal chess position has more than 218 moves
+    private final int[] moves = new int[256];
+    private int size;
+
+    void add(int move) {
+        moves[size++] = move;
+    }
+
+    int get(int index) {
+        return moves[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    /**
+     * Drops every move from index size onward
+     */
+    void truncate(int size) {
+        this.size = size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,169 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts the leaf nodes of the legal move tree of a game to a fixed depth ("perft"),
+ * which verifies the whole move generator against published node counts.
+ * <p>
+ * Running this class as a program times the bundled suite and reports nodes per second.
+ */
+public final class Perft {
+
+    /**
+     * A test position along with its published perft results
+     *
+     * @param name          short description of the position
+     * @param fen           the position in Forsyth-Edwards Notation
+     * @param expectedNodes expected perft results, starting at depth 1
+     */
+    public record Position(String name, String fen, long[] expectedNodes) {
+
+        /**
+         * @return a new game set up at this position
+         */
+        public ChessGame toGame() {
+            return ChessGame.fromFen(fen);
+        }
+    }
+
+    /**
+     * Standard positions
+     */
+    public static final List<Position> SUITE = List.of(
+            new Position("initial position",
+                    "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                    new long[]{20, 400, 8902, 197281, 4865609}),
+            new Position("kiwipete",
+                    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    new long[]{48, 2039, 97862, 4085603}),
+            new Position("rook and pawn endgame",
+                    "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    new long[]{14, 191, 2812, 43238}),
+            new Position("castling and promotions",
+                    "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    new long[]{6, 264, 9467, 422333}),
+            new Position("discovered checks",
+                    "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    new long[]{44, 1486, 62379}),
+            new Position("italian middlegame",
+                    "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    new long[]{46, 2079, 89890, 3894594}),
+            new Position("underpromotions",
+                    "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+                    new long[]{24, 496, 9483, 182838})
+    );
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the positions reachable from the current position in exactly depth moves
+     *
+     * @param game  the game to search; it is restored before returning
+     * @param depth number of moves to play
+     * @return number of leaf positions
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        var moves = legalMoves(game);
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (var move : moves) {
+            var undo = game.makeMoveUnchecked(move);
+            nodes += perft(game, depth - 1);
+            game.unmakeMove(undo);
+        }
+        return nodes;
+    }
+
+    /**
+     * Splits a perft count by the first move played, for comparing against another engine
+     *
+     * @param game  the game to search; it is restored before returning
+     * @param depth number of moves to play, at least 1
+     * @return leaf counts keyed by the first move in coordinate notation (e.g. "e2e4")
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (var move : legalMoves(game)) {
+            var undo = game.makeMoveUnchecked(move);
+            counts.put(move.coordinates(), perft(game, depth - 1));
+            game.unmakeMove(undo);
+        }
+        return counts;
+    }
+
+    /**
+     * Gathers every valid move of the team whose turn it is
+     */
+    static List<ChessMove> legalMoves(ChessGame game) {
+        var packedMoves = new MoveList();
+        MoveGenerator.generateLegal(game.getBoard(), game.getTeamTurn(), game.state(), -1L, packedMoves);
+
+        List<ChessMove> moves = new ArrayList<>(packedMoves.size());
+        for (int i = 0; i < packedMoves.size(); i++) {
+            moves.add(Move.toChessMove(packedMoves.get(i)));
+        }
+        return moves;
+    }
+
+    /**
+     * Times the suite at its deepest depths and reports nodes per second.
+     * Pass a position name and depth to print a divide for that position instead.
+     */
+    public static void main(String[] args) {
+        if (args.length == 2) {
+            for (var position : SUITE) {
+                if (position.name().equals(args[0])) {
+                    var counts = divide(position.toGame(), Integer.parseInt(args[1]));
+                    long total = 0;
+                    for (var entry : counts.entrySet()) {
+                        System.out.printf("%s: %d%n", entry.getKey(), entry.getValue());
+                        total += entry.getValue();
+                    }
+                    System.out.printf("%nNodes searched: %d%n", total);
+                    return;
+                }
+            }
+            System.out.printf("Unknown position: %s%n", args[0]);
+            return;
+        }
+
+        System.out.println(Attacks.summary());
+
+        // Warm up the JIT so the timed runs measure compiled code
+        for (var position : SUITE) {
+            perft(position.toGame(), position.expectedNodes().length - 1);
+        }
+
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for (var position : SUITE) {
+            int depth = position.expectedNodes().length;
+            var game = position.toGame();
+
+            long start = System.nanoTime();
+            long nodes = perft(game, depth);
+            long elapsed = System.nanoTime() - start;
+
+            boolean correct = nodes == position.expectedNodes()[depth - 1];
+            System.out.printf("%-24s depth %d: %,12d nodes in %,8.1f ms (%,.0f nodes/s)%s%n",
+                    position.name(), depth, nodes, elapsed / 1e6, nodes * 1e9 / elapsed,
+                    correct ? "" : "  MISMATCH");
+            totalNodes += nodes;
+            totalNanos += elapsed;
+        }
+        System.out.printf("%-24s %,21d nodes in %,8.1f ms (%,.0f nodes/s)%n",
+                "total", totalNodes, totalNanos / 1e6, totalNodes * 1e9 / totalNanos);
+    }
+}
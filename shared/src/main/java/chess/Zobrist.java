@@ -0,0 +1,41 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key of every
+ * (piece, square) pair on the board, plus the side-to-move key when black is to move and
+ * the keys of the castling rights and en passant square, so making or unmaking a move
+ * only has to XOR in the few keys that changed.
+ * <p>
+ * The keys come from a fixed seed, so the key of a position is the same in every JVM
+ * and can be stored or compared across the client and server.
+ */
+final class Zobrist {
+
+    // Indexed by ChessBoard.pieceIndex, then square
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long BLACK_TO_MOVE;
+    // Indexed by the GameState castling bits, and by en passant square
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT = new long[64];
+
+    static {
+        var random = new SplittableRandom(0x5EED_C0DE_CAFEL);
+        for (var squares : PIECE_SQUARE) {
+            for (int sq = 0; sq < 64; sq++) {
+                squares[sq] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        for (int rights = 1; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = random.nextLong();
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            EN_PASSANT[sq] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+}
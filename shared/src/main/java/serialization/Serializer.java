@@ -0,0 +1,30 @@
+package serialization;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * The Gson instance shared by the server and client.
+ * <p>
+ * Gson instances are thread-safe and cache the type adapters they build, so one instance
+ * is reused rather than creating a new one per message. The chess classes carry their own
+ * compact type adapters (ChessGame and ChessBoard as FEN, ChessMove as "e2e4", ChessPosition
+ * as "e2"), which every Gson picks up; this instance additionally leaves characters such
+ * as ' and = unescaped, since the JSON is never embedded in HTML.
+ */
+public final class Serializer {
+
+    private static final Gson GSON = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
+
+    private Serializer() {
+    }
+
+    /**
+     * @return the shared Gson instance
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+}
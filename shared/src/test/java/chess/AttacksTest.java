@@ -0,0 +1,48 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class AttacksTest {
+
+    @Test
+    public void slidingLookupsMatchRayWalk() {
+        // Compare the tables with walking each ray, on random boards of varying density
+        var random = new Random(240);
+        for (int trial = 0; trial < 2000; trial++) {
+            long occupied = random.nextLong() & random.nextLong() & (trial % 2 == 0 ? random.nextLong() : -1L);
+            for (int sq = 0; sq < 64; sq++) {
+                Assertions.assertEquals(walk(sq, Attacks.ROOK_DIRECTIONS, occupied), Attacks.rook(sq, occupied));
+                Assertions.assertEquals(walk(sq, Attacks.BISHOP_DIRECTIONS, occupied), Attacks.bishop(sq, occupied));
+            }
+        }
+    }
+
+    @Test
+    public void stepTables() {
+        // Knight on a1 reaches b3 and c2; king on e1 has five neighbours; white pawn on e2 attacks d3 and f3
+        Assertions.assertEquals((1L << 17) | (1L << 10), Attacks.KNIGHT[0]);
+        Assertions.assertEquals(5, Long.bitCount(Attacks.KING[4]));
+        Assertions.assertEquals((1L << 19) | (1L << 21), Attacks.PAWN[0][12]);
+        Assertions.assertTrue(Attacks.tableBytes() > 0);
+    }
+
+    private static long walk(int sq, int[][] directions, long occupied) {
+        long targets = 0;
+        for (var direction : directions) {
+            int r = sq / 8 + direction[0];
+            int c = sq % 8 + direction[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                targets |= 1L << (r * 8 + c);
+                if ((occupied & (1L << (r * 8 + c))) != 0) {
+                    break;
+                }
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return targets;
+    }
+}
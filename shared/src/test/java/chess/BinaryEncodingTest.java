@@ -0,0 +1,128 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static chess.TestMoves.move;
+
+public class BinaryEncodingTest {
+
+    @Test
+    public void newGameTakes46Bytes() {
+        var bytes = new ChessGame().toBytes();
+        Assertions.assertEquals(46, bytes.length);
+        Assertions.assertEquals(new ChessGame().toFen(), ChessGame.fromBytes(bytes).toFen());
+    }
+
+    @Test
+    public void suiteRoundTrips() {
+        for (var position : Perft.SUITE) {
+            var game = position.toGame();
+            var decoded = ChessGame.fromBytes(game.toBytes());
+            Assertions.assertEquals(position.fen(), decoded.toFen(), position.name());
+            Assertions.assertEquals(game.getZobristKey(), decoded.getZobristKey(), position.name());
+        }
+    }
+
+    @Test
+    public void historyRoundTrips() throws InvalidMoveException {
+        var shuffle = new ChessMove[]{
+                move(1, 7, 3, 6), move(8, 7, 6, 6), move(3, 6, 1, 7), move(6, 6, 8, 7)};
+        var game = new ChessGame();
+        for (int i = 0; i < 8; i++) {
+            game = ChessGame.fromBytes(game.toBytes());
+            game.makeMove(shuffle[i % shuffle.length]);
+        }
+        Assertions.assertTrue(game.isThreefoldRepetition());
+        Assertions.assertEquals(46 + 8 * 8 + 8 + 2 * 8, game.toBytes().length);
+
+        // The moves come back in the order they were made
+        Assertions.assertEquals(8, game.getMoveCount());
+        for (int ply = 0; ply < 8; ply++) {
+            Assertions.assertEquals(shuffle[ply % shuffle.length], game.getMove(ply));
+        }
+    }
+
+    @Test
+    public void version1IsStillRead() {
+        // Version 1 ended after the position history, with no moves
+        var bytes = new ChessGame().toBytes();
+        var version1 = Arrays.copyOf(bytes, bytes.length - 4);
+        version1[0] = 1;
+
+        var game = ChessGame.fromBytes(version1);
+        Assertions.assertEquals(new ChessGame().toFen(), game.toFen());
+        Assertions.assertEquals(0, game.getMoveCount());
+    }
+
+    @Test
+    public void version2IsStillRead() throws InvalidMoveException {
+        // Version 2 had no starting key before the moves
+        var game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        var bytes = game.toBytes();
+        var version2 = new byte[bytes.length - 8];
+        System.arraycopy(bytes, 0, version2, 0, 46);
+        System.arraycopy(bytes, 46 + 8, version2, 46, bytes.length - 46 - 8);
+        version2[0] = 2;
+
+        var decoded = ChessGame.fromBytes(version2);
+        Assertions.assertEquals(game.toFen(), decoded.toFen());
+        Assertions.assertEquals(move(2, 5, 4, 5), decoded.getMove(0));
+    }
+
+    @Test
+    public void logHashFollowsStartAndMoves() throws InvalidMoveException {
+        var game = new ChessGame();
+        long start = game.getLogHash(0);
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 5, 5, 5));
+
+        // Earlier prefixes keep their hash as moves are added, and survive the encoding
+        Assertions.assertEquals(start, game.getLogHash(0));
+        var decoded = ChessGame.fromBytes(game.toBytes());
+        for (int ply = 0; ply <= 2; ply++) {
+            Assertions.assertEquals(game.getLogHash(ply), decoded.getLogHash(ply));
+        }
+        Assertions.assertNotEquals(game.getLogHash(1), game.getLogHash(2));
+
+        // Other moves, or the same moves from another position, give other hashes
+        var other = new ChessGame();
+        other.makeMove(move(2, 5, 4, 5));
+        other.makeMove(move(7, 4, 5, 4));
+        Assertions.assertEquals(game.getLogHash(1), other.getLogHash(1));
+        Assertions.assertNotEquals(game.getLogHash(2), other.getLogHash(2));
+
+        var shifted = ChessGame.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ - 0 1");
+        Assertions.assertNotEquals(start, shifted.getLogHash(0));
+        shifted.makeMove(move(2, 5, 4, 5));
+        Assertions.assertNotEquals(game.getLogHash(1), shifted.getLogHash(1));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> shifted.getLogHash(2));
+    }
+
+    @Test
+    public void packedMovesRoundTrip() {
+        var promotion = new ChessMove(ChessPosition.of(7, 1), ChessPosition.of(8, 2), ChessPiece.PieceType.KNIGHT);
+        Assertions.assertEquals(promotion, ChessMove.fromPacked(promotion.toPacked()));
+        Assertions.assertTrue(promotion.toPacked() < 1 << 15);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessMove.fromPacked(1 << 15));
+    }
+
+    @Test
+    public void corruptBytesAreRejected() {
+        var bytes = new ChessGame().toBytes();
+
+        var unknownVersion = bytes.clone();
+        unknownVersion[0] = 4;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromBytes(unknownVersion));
+
+        var truncated = Arrays.copyOf(bytes, 41);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromBytes(truncated));
+
+        var badPiece = bytes.clone();
+        badPiece[20] = (byte) 0xEE;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromBytes(badPiece));
+    }
+}
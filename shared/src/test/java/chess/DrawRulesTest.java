@@ -0,0 +1,84 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.move;
+
+public class DrawRulesTest {
+
+    // Both knights on the kingside hop out and back, returning to the starting position every four moves
+    private static final ChessMove[] KNIGHT_SHUFFLE = {
+            move(1, 7, 3, 6), move(8, 7, 6, 6), move(3, 6, 1, 7), move(6, 6, 8, 7)
+    };
+
+    @Test
+    public void threefoldRepetition() throws InvalidMoveException {
+        var game = new ChessGame();
+        shuffle(game, 4);
+        Assertions.assertFalse(game.isThreefoldRepetition());
+
+        shuffle(game, 4);
+        Assertions.assertTrue(game.isThreefoldRepetition());
+    }
+
+    @Test
+    public void irreversibleMoveClearsRepetitions() throws InvalidMoveException {
+        var game = new ChessGame();
+        shuffle(game, 4);
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 5, 5, 5));
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+
+        shuffle(game, 8);
+        Assertions.assertTrue(game.isThreefoldRepetition());
+        Assertions.assertEquals(8, game.getHalfmoveClock());
+    }
+
+    @Test
+    public void fiftyMoveRule() throws InvalidMoveException {
+        var game = new ChessGame();
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertFalse(game.isFiftyMoveRule());
+            game.makeMove(KNIGHT_SHUFFLE[i % KNIGHT_SHUFFLE.length]);
+        }
+        Assertions.assertTrue(game.isFiftyMoveRule());
+    }
+
+    @Test
+    public void historySurvivesSerialization() throws InvalidMoveException {
+        // Games are stored as JSON between moves, so the history has to come back with them
+        var gson = new Gson();
+        var game = new ChessGame();
+        for (int i = 0; i < 8; i++) {
+            game = gson.fromJson(gson.toJson(game), ChessGame.class);
+            game.makeMove(KNIGHT_SHUFFLE[i % KNIGHT_SHUFFLE.length]);
+        }
+        Assertions.assertTrue(game.isThreefoldRepetition());
+    }
+
+    @Test
+    public void unmakeRestoresHistory() {
+        var game = new ChessGame();
+        var undos = new ChessGame.MoveUndo[8];
+        for (int i = 0; i < 8; i++) {
+            undos[i] = game.makeMoveUnchecked(KNIGHT_SHUFFLE[i % KNIGHT_SHUFFLE.length]);
+        }
+        Assertions.assertTrue(game.isThreefoldRepetition());
+
+        game.unmakeMove(undos[7]);
+        game.unmakeMove(undos[6]);
+        game.unmakeMove(undos[5]);
+        game.unmakeMove(undos[4]);
+        Assertions.assertFalse(game.isThreefoldRepetition());
+        Assertions.assertEquals(4, game.getHalfmoveClock());
+        Assertions.assertEquals(4, game.getMoveCount());
+    }
+
+    private static void shuffle(ChessGame game, int moves) throws InvalidMoveException {
+        for (int i = 0; i < moves; i++) {
+            game.makeMove(KNIGHT_SHUFFLE[i % KNIGHT_SHUFFLE.length]);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.move;
+
+public class FenTest {
+
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    @Test
+    public void newGameIsStartPosition() {
+        var game = new ChessGame();
+        Assertions.assertEquals(START, game.toFen());
+        Assertions.assertEquals(game, ChessGame.fromFen(START));
+        Assertions.assertEquals(game.getZobristKey(), ChessGame.fromFen(START).getZobristKey());
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR", game.getBoard().toFen());
+    }
+
+    @Test
+    public void suiteRoundTrips() {
+        for (var position : Perft.SUITE) {
+            Assertions.assertEquals(position.fen(), position.toGame().toFen(), position.name());
+        }
+    }
+
+    @Test
+    public void movesUpdateCountersAndEnPassant() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        // No black pawn can capture on e3, so it is not recorded
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1", game.toFen());
+
+        game.makeMove(move(8, 7, 6, 6));
+        game.makeMove(move(4, 5, 5, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        Assertions.assertEquals("rnbqkb1r/ppp1pppp/5n2/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3", game.toFen());
+
+        game.makeMove(move(1, 5, 2, 5));
+        Assertions.assertEquals("rnbqkb1r/ppp1pppp/5n2/3pP3/8/8/PPPPKPPP/RNBQ1BNR b kq - 1 3", game.toFen());
+    }
+
+    @Test
+    public void importedEnPassantCanBePlayed() throws InvalidMoveException {
+        var game = ChessGame.fromFen("rnbqkb1r/ppp1pppp/5n2/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3");
+        game.makeMove(move(5, 5, 6, 4));
+        Assertions.assertNull(game.getBoard().getPiece(ChessPosition.of(5, 4)));
+    }
+
+    @Test
+    public void unusableFieldsAreDropped() {
+        // Castling rights without the rook at home, and an en passant square nobody can capture onto
+        var game = ChessGame.fromFen("4k3/8/8/8/4P3/8/8/4K2R b KQkq e3 5 40");
+        Assertions.assertEquals("4k3/8/8/8/4P3/8/8/4K2R b K - 5 40", game.toFen());
+    }
+
+    @Test
+    public void optionalFieldsDefault() {
+        var game = ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b");
+        Assertions.assertEquals("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", game.toFen());
+        Assertions.assertTrue(game.isInStalemate(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    public void malformedFenIsRejected() {
+        for (var fen : new String[]{
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w",
+                "rnbqkbnr/ppppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w",
+                START.replace(" w ", " x "),
+                START.replace("KQkq", "KQxq"),
+                START.replace(" - ", " e4 "),
+                START.replace(" 0 1", " 0 one"),
+                START + " extra",
+        }) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGame.fromFen(fen), fen);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class FlyweightTest {
+
+    @Test
+    public void positionsAreShared() {
+        Assertions.assertSame(ChessPosition.of(4, 5), ChessPosition.of(4, 5));
+        Assertions.assertEquals(new ChessPosition(4, 5), ChessPosition.of(4, 5));
+
+        // Squares off the board still work, they are just not cached
+        Assertions.assertEquals(new ChessPosition(0, 9), ChessPosition.of(0, 9));
+    }
+
+    @Test
+    public void piecesAreShared() {
+        var board = new ChessBoard();
+        board.resetBoard();
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT),
+                board.getPiece(ChessPosition.of(8, 2)));
+    }
+
+    @Test
+    public void gsonReturnsSharedInstances() {
+        var gson = new Gson();
+        var move = new ChessMove(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.QUEEN);
+
+        var read = gson.fromJson(gson.toJson(move), ChessMove.class);
+        Assertions.assertEquals(move, read);
+        Assertions.assertSame(ChessPosition.of(7, 1), read.getStartPosition());
+
+        var piece = gson.fromJson("{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"}", ChessPiece.class);
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK), piece);
+    }
+}
@@ -0,0 +1,73 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static chess.TestMoves.move;
+
+public class GameStatusTest {
+
+    @Test
+    public void foolsMate() throws InvalidMoveException {
+        var game = new ChessGame();
+        Assertions.assertEquals(new GameStatus(GameStatus.State.ONGOING, GameStatus.State.ONGOING), game.getGameStatus());
+
+        game.makeMove(move(2, 6, 3, 6));
+        game.makeMove(move(7, 5, 5, 5));
+        game.makeMove(move(2, 7, 4, 7));
+        game.makeMove(move(8, 4, 4, 8));
+
+        var status = game.getGameStatus();
+        Assertions.assertEquals(GameStatus.State.CHECKMATE, status.of(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(GameStatus.State.ONGOING, status.of(ChessGame.TeamColor.BLACK));
+        Assertions.assertTrue(status.isGameOver());
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    public void statusFollowsBoardChanges() {
+        var game = new ChessGame();
+        var status = game.getGameStatus();
+        Assertions.assertSame(status, game.getGameStatus());
+
+        // Changing the board directly must not leave a stale status behind
+        var board = new ChessBoard();
+        board.addPiece(ChessPosition.of(1, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(ChessPosition.of(3, 2), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        board.addPiece(ChessPosition.of(8, 8), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        game.setBoard(board);
+        Assertions.assertEquals(GameStatus.State.STALEMATE, game.getGameStatus().of(ChessGame.TeamColor.WHITE));
+
+        board.addPiece(ChessPosition.of(3, 2), null);
+        Assertions.assertEquals(GameStatus.State.ONGOING, game.getGameStatus().of(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    public void queriesLeaveTheBoardAloneForOtherReaders() throws Exception {
+        // White can capture en passant, and its king has moves along a rook's line of attack
+        var game = ChessGame.fromFen("4k3/8/8/3pP3/8/8/8/r3K3 w - d6 0 2");
+        var fen = game.getBoard().toFen();
+
+        // Run the move queries over and over while this thread keeps reading the board
+        var stop = new AtomicBoolean();
+        var queries = new Thread(() -> {
+            while (!stop.get()) {
+                game.validMoves(ChessPosition.of(1, 5));
+                game.validMoves(ChessPosition.of(5, 5));
+                game.hasValidMoves(ChessGame.TeamColor.WHITE);
+            }
+        });
+        queries.start();
+        try {
+            long end = System.nanoTime() + 200_000_000L;
+            while (System.nanoTime() < end) {
+                Assertions.assertEquals(fen, game.getBoard().toFen());
+            }
+        } finally {
+            stop.set(true);
+            queries.join();
+        }
+    }
+}
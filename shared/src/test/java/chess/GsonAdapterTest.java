@@ -0,0 +1,75 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import serialization.Serializer;
+
+import static chess.TestMoves.move;
+
+public class GsonAdapterTest {
+
+    private static final Gson GSON = Serializer.gson();
+
+    @Test
+    public void positionsAndMovesUseCoordinates() {
+        Assertions.assertEquals("\"e2\"", GSON.toJson(ChessPosition.of(2, 5)));
+        Assertions.assertEquals("\"e2e4\"", GSON.toJson(move(2, 5, 4, 5, null)));
+        Assertions.assertEquals("\"a7a8n\"", GSON.toJson(move(7, 1, 8, 1, ChessPiece.PieceType.KNIGHT)));
+
+        Assertions.assertSame(ChessPosition.of(8, 8), GSON.fromJson("\"h8\"", ChessPosition.class));
+        Assertions.assertEquals(move(7, 1, 8, 1, ChessPiece.PieceType.KNIGHT), GSON.fromJson("\"a7a8n\"", ChessMove.class));
+
+        // Squares off the board have no name, so they keep the object form
+        var offBoard = new ChessPosition(0, 9);
+        Assertions.assertEquals("{\"row\":0,\"col\":9}", GSON.toJson(offBoard));
+        Assertions.assertEquals(offBoard, GSON.fromJson(GSON.toJson(offBoard), ChessPosition.class));
+    }
+
+    @Test
+    public void legacyMovesAreRead() {
+        var json = "{\"startPosition\":{\"row\":7,\"col\":1},\"endPosition\":{\"row\":8,\"col\":1},\"promotionPiece\":\"QUEEN\"}";
+        var read = GSON.fromJson(json, ChessMove.class);
+        Assertions.assertEquals(move(7, 1, 8, 1, ChessPiece.PieceType.QUEEN), read);
+        Assertions.assertSame(ChessPosition.of(8, 1), read.getEndPosition());
+    }
+
+    @Test
+    public void gameIsWrittenAsFen() throws InvalidMoveException {
+        var game = new ChessGame();
+        Assertions.assertEquals("{\"fen\":\"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1\"}", GSON.toJson(game));
+
+        game.makeMove(move(1, 7, 3, 6, null));
+        game.makeMove(move(8, 7, 6, 6, null));
+        var read = GSON.fromJson(GSON.toJson(game), ChessGame.class);
+        Assertions.assertEquals(game.toFen(), read.toFen());
+        Assertions.assertEquals(game.getZobristKey(), read.getZobristKey());
+        Assertions.assertTrue(GSON.toJson(game).contains("\"history\":["));
+    }
+
+    @Test
+    public void legacyGameIsRead() {
+        // A game stored before this format: reflective fields and the ChessPiece[8][8] board
+        var row = new StringBuilder("[");
+        for (int col = 1; col <= 8; col++) {
+            row.append(col == 5 ? "{\"pieceColor\":\"WHITE\",\"type\":\"KING\"}" : "null").append(col < 8 ? "," : "]");
+        }
+        var empty = "[null,null,null,null,null,null,null,null]";
+        var json = new StringBuilder("{\"currTeam\":\"BLACK\",\"currBoard\":{\"board\":[").append(row);
+        for (int i = 0; i < 6; i++) {
+            json.append(',').append(empty);
+        }
+        json.append(",[null,null,null,null,{\"pieceColor\":\"BLACK\",\"type\":\"KING\"},null,null,null]]}}");
+
+        var game = GSON.fromJson(json.toString(), ChessGame.class);
+        Assertions.assertEquals("4k3/8/8/8/8/8/8/4K3 b - - 0 1", game.toFen());
+    }
+
+    @Test
+    public void malformedFenIsASyntaxError() {
+        Assertions.assertThrows(JsonSyntaxException.class, () -> GSON.fromJson("{\"fen\":\"8/8 w\"}", ChessGame.class));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> GSON.fromJson("\"e9\"", ChessPosition.class));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> GSON.fromJson("\"e2e4x\"", ChessMove.class));
+    }
+}
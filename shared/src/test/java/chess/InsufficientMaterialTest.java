@@ -0,0 +1,50 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class InsufficientMaterialTest {
+
+    @Test
+    public void deadPositions() {
+        Assertions.assertTrue(gameWith().isInsufficientMaterial(), "king against king");
+        Assertions.assertTrue(gameWith("c1", ChessPiece.PieceType.BISHOP).isInsufficientMaterial(),
+                "king and bishop against king");
+        Assertions.assertTrue(gameWith("b1", ChessPiece.PieceType.KNIGHT).isInsufficientMaterial(),
+                "king and knight against king");
+        // c1 and f8 are both dark squares
+        Assertions.assertTrue(gameWith("c1", ChessPiece.PieceType.BISHOP, "f8", ChessPiece.PieceType.BISHOP)
+                .isInsufficientMaterial(), "bishops on the same color");
+    }
+
+    @Test
+    public void livePositions() {
+        Assertions.assertFalse(new ChessGame().isInsufficientMaterial(), "starting position");
+        Assertions.assertFalse(gameWith("a2", ChessPiece.PieceType.PAWN).isInsufficientMaterial(), "pawn");
+        Assertions.assertFalse(gameWith("a1", ChessPiece.PieceType.ROOK).isInsufficientMaterial(), "rook");
+        Assertions.assertFalse(gameWith("c1", ChessPiece.PieceType.BISHOP, "c8", ChessPiece.PieceType.BISHOP)
+                .isInsufficientMaterial(), "bishops on opposite colors");
+        Assertions.assertFalse(gameWith("b1", ChessPiece.PieceType.KNIGHT, "g8", ChessPiece.PieceType.KNIGHT)
+                .isInsufficientMaterial(), "two knights");
+    }
+
+    /**
+     * Builds a game with kings on e1 and e8, plus pieces given as square and type pairs;
+     * pieces on the first four rows are white and the rest black
+     */
+    private static ChessGame gameWith(Object... squaresAndTypes) {
+        var board = new ChessBoard();
+        board.addPiece(ChessPosition.of(1, 5), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(ChessPosition.of(8, 5), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        for (int i = 0; i < squaresAndTypes.length; i += 2) {
+            var square = (String) squaresAndTypes[i];
+            int row = square.charAt(1) - '0';
+            var color = row <= 4 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            board.addPiece(ChessPosition.of(row, square.charAt(0) - 'a' + 1),
+                    ChessPiece.of(color, (ChessPiece.PieceType) squaresAndTypes[i + 1]));
+        }
+        var game = new ChessGame();
+        game.setBoard(board);
+        return game;
+    }
+}
@@ -0,0 +1,85 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+public class PerftTest {
+
+    @Test
+    public void suiteNodeCounts() {
+        // Check every position in the suite at every depth with a published count
+        for (var position : Perft.SUITE) {
+            var game = position.toGame();
+            for (int depth = 1; depth <= position.expectedNodes().length; depth++) {
+                Assertions.assertEquals(position.expectedNodes()[depth - 1], Perft.perft(game, depth),
+                        String.format("Wrong perft(%d) for %s", depth, position.name()));
+            }
+        }
+    }
+
+    @Test
+    public void perftRestoresGame() {
+        // Searching must leave the game exactly as it was
+        var position = Perft.SUITE.get(0);
+        var game = position.toGame();
+        Perft.perft(game, 3);
+        Assertions.assertEquals(position.toGame(), game);
+    }
+
+    @Test
+    public void divideSumsToPerft() {
+        // The per-move counts of a divide add up to the full perft count
+        var game = new ChessGame();
+        var counts = Perft.divide(game, 3);
+        Assertions.assertEquals(20, counts.size());
+        Assertions.assertEquals(600, counts.get("e2e4"));
+        long total = 0;
+        for (long nodes : counts.values()) {
+            total += nodes;
+        }
+        Assertions.assertEquals(8902, total);
+    }
+
+    @Test
+    public void legalGeneratorMatchesMakeAndTest() {
+        // Pin and check masks must keep exactly the moves that do not leave the king in check
+        for (var position : Perft.SUITE) {
+            var game = position.toGame();
+            for (var move : Perft.legalMoves(game)) {
+                var undo = game.makeMoveUnchecked(move);
+                compareWithMakeAndTest(game, position.name());
+                game.unmakeMove(undo);
+            }
+        }
+    }
+
+    private static void compareWithMakeAndTest(ChessGame game, String name) {
+        var board = game.getBoard();
+        var pseudoLegal = new MoveList();
+        MoveGenerator.generateAll(board, game.getTeamTurn(), pseudoLegal);
+
+        var expected = new HashSet<ChessMove>();
+        for (int i = 0; i < pseudoLegal.size(); i++) {
+            var move = Move.toChessMove(pseudoLegal.get(i));
+            var undo = game.makeMoveUnchecked(move);
+            if (!game.isInCheckBoard(undo.previousTurn(), board)) {
+                expected.add(move);
+            }
+            game.unmakeMove(undo);
+        }
+
+        // Castling and en passant are not pseudo-legal board moves, so leave them out of the comparison
+        var legal = new MoveList();
+        MoveGenerator.generateLegal(board, game.getTeamTurn(), game.state(), -1L, legal);
+        var actual = new HashSet<ChessMove>();
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if (!Move.hasFlag(move, Move.CASTLE | Move.EN_PASSANT)) {
+                actual.add(Move.toChessMove(move));
+            }
+        }
+        Assertions.assertEquals(expected, actual, name);
+    }
+}
@@ -0,0 +1,18 @@
+package chess;
+
+/**
+ * Builds moves from row and column numbers, as the tests in this package write them
+ */
+final class TestMoves {
+
+    private TestMoves() {
+    }
+
+    static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return move(startRow, startCol, endRow, endCol, null);
+    }
+
+    static ChessMove move(int startRow, int startCol, int endRow, int endCol, ChessPiece.PieceType promotion) {
+        return new ChessMove(ChessPosition.of(startRow, startCol), ChessPosition.of(endRow, endCol), promotion);
+    }
+}
@@ -0,0 +1,56 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static chess.TestMoves.move;
+
+public class ZobristTest {
+
+    @Test
+    public void transpositionsShareKey() throws InvalidMoveException {
+        // Reach the same position by two different move orders
+        var first = new ChessGame();
+        first.makeMove(move(1, 7, 3, 6, null));
+        first.makeMove(move(8, 7, 6, 6, null));
+        first.makeMove(move(1, 2, 3, 3, null));
+
+        var second = new ChessGame();
+        second.makeMove(move(1, 2, 3, 3, null));
+        second.makeMove(move(8, 7, 6, 6, null));
+        second.makeMove(move(1, 7, 3, 6, null));
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first.getZobristKey(), second.getZobristKey());
+    }
+
+    @Test
+    public void sideToMoveChangesKey() {
+        var game = new ChessGame();
+        long whiteToMove = game.getZobristKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertNotEquals(whiteToMove, game.getZobristKey());
+    }
+
+    @Test
+    public void incrementalKeyMatchesFreshBoard() {
+        // Play through the underpromotion position and rebuild every board it passes through
+        var game = Perft.SUITE.get(3).toGame();
+        long before = game.getZobristKey();
+        for (var move : Perft.legalMoves(game)) {
+            var undo = game.makeMoveUnchecked(move);
+
+            var rebuilt = new ChessBoard();
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    var position = ChessPosition.of(row, col);
+                    rebuilt.addPiece(position, game.getBoard().getPiece(position));
+                }
+            }
+            Assertions.assertEquals(rebuilt.zobristKey(), game.getBoard().zobristKey());
+
+            game.unmakeMove(undo);
+        }
+        Assertions.assertEquals(before, game.getZobristKey());
+    }
+}